@@ -0,0 +1,16 @@
+package com.zs.pulltorefreshtest;
+
+/**
+ * PullToRefreshView持有的正在执行的异步刷新或加载更多，可以是单独的AsyncOperation，
+ * 也可以是加入RefreshCoordinator中共享任务的一个参与者。所有方法都只能在主线程中调用
+ */
+interface AsyncHandle {
+
+	/**中断任务，并以CancellationException回调onFailure()*/
+	void cancel();
+
+	/**中断任务，不再回调*/
+	void abandon();
+
+	boolean isFinished();
+}
@@ -0,0 +1,172 @@
+package com.zs.pulltorefreshtest;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+/**
+ * 在Executor中执行的一次异步刷新或加载更多，结果、异常、超时和取消都在主线程中回调且只回调一次
+ * @param <T> 任务的结果类型
+ */
+final class AsyncOperation<T> implements AsyncHandle {
+
+	/**默认超时时间，单位毫秒*/
+	static final long DEFAULT_TIMEOUT = 30 * 1000;
+
+	/**
+	 * 结束回调，在主线程中调用
+	 */
+	interface Callback<T> {
+
+		void onSuccess(T result);
+
+		/**
+		 * @param error 任务抛出的异常，超时为TimeoutException，取消为CancellationException
+		 */
+		void onFailure(Throwable error);
+	}
+
+	private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+	private static ExecutorService defaultExecutor;
+
+	/**
+	 * 默认的Executor，按需创建后台优先级的线程，空闲60秒后回收
+	 */
+	static synchronized Executor getDefaultExecutor() {
+		if (null == defaultExecutor) {
+			defaultExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+				private final AtomicInteger count = new AtomicInteger(1);
+
+				@Override
+				public Thread newThread(final Runnable r) {
+					return new Thread(new Runnable() {
+
+						@Override
+						public void run() {
+							Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+							r.run();
+						}
+					}, "PullToRefreshAsync #" + count.getAndIncrement());
+				}
+			});
+		}
+		return defaultExecutor;
+	}
+
+	private final Callback<T> callback;
+	private final FutureTask<T> future;
+	/**只在主线程中读写*/
+	private boolean finished = false;
+
+	private final Runnable timeoutRunnable = new Runnable() {
+
+		@Override
+		public void run() {
+			if (!finished) {
+				future.cancel(true);
+				finish(null, new TimeoutException("async operation timed out"));
+			}
+		}
+	};
+
+	AsyncOperation(Callable<T> callable, Callback<T> callback) {
+		this.callback = callback;
+		this.future = new FutureTask<T>(callable) {
+
+			@Override
+			protected void done() {
+				MAIN_HANDLER.post(new Runnable() {
+
+					@Override
+					public void run() {
+						deliver();
+					}
+				});
+			}
+		};
+	}
+
+	/**
+	 * @方法描述: 在主线程中调用，开始执行
+	 * @param executor
+	 * @param timeout 超时时间，单位毫秒，小于等于0时不限制
+	 */
+	void start(Executor executor, long timeout) {
+		if (timeout > 0) {
+			MAIN_HANDLER.postDelayed(timeoutRunnable, timeout);
+		}
+		try {
+			executor.execute(future);
+		} catch (RejectedExecutionException e) {
+			finish(null, e);
+		}
+	}
+
+	/**
+	 * @方法描述: 在主线程中调用，中断后台任务，并以CancellationException回调onFailure()
+	 */
+	@Override
+	public void cancel() {
+		if (!finished) {
+			future.cancel(true);
+			finish(null, new CancellationException());
+		}
+	}
+
+	/**
+	 * @方法描述: 在主线程中调用，中断后台任务，不再回调
+	 */
+	@Override
+	public void abandon() {
+		finished = true;
+		MAIN_HANDLER.removeCallbacks(timeoutRunnable);
+		future.cancel(true);
+	}
+
+	@Override
+	public boolean isFinished() {
+		return finished;
+	}
+
+	private void deliver() {
+		if (finished) {
+			return;
+		}
+		try {
+			finish(future.get(), null);
+		} catch (ExecutionException e) {
+			finish(null, null != e.getCause() ? e.getCause() : e);
+		} catch (CancellationException e) {
+			finish(null, e);
+		} catch (InterruptedException e) {
+			finish(null, e);
+		}
+	}
+
+	private void finish(T result, Throwable error) {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		MAIN_HANDLER.removeCallbacks(timeoutRunnable);
+		if (null == error) {
+			callback.onSuccess(result);
+		} else {
+			callback.onFailure(error);
+		}
+	}
+}
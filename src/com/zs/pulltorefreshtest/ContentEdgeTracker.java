@@ -0,0 +1,169 @@
+package com.zs.pulltorefreshtest;
+
+import android.database.DataSetObserver;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.AbsListView;
+import android.widget.Adapter;
+
+/**
+ * 跟踪contentView是否处于顶部或底部。
+ * 通过监听contentView的滑动（ViewTreeObserver.OnScrollChangedListener，AbsListView滑动item时也会回调）、
+ * 布局和Adapter数据变化来更新标记，触摸事件中只需要读取两个boolean，
+ * 而不必每次都查询Adapter和子View的位置。不占用AbsListView的OnScrollListener
+ */
+final class ContentEdgeTracker implements ViewTreeObserver.OnScrollChangedListener,
+		ViewTreeObserver.OnGlobalLayoutListener {
+
+	private View content;
+	private PullReadinessStrategy strategy;
+	/**注册了监听的ViewTreeObserver*/
+	private ViewTreeObserver observer;
+	/**注册了数据监听的Adapter*/
+	private Adapter observedAdapter;
+	/**是否已经注册了监听，未注册时每次读取都重新计算*/
+	private boolean listening = false;
+
+	private boolean atTop = false;
+	private boolean atBottom = false;
+	/**标记是否需要重新计算*/
+	private boolean dirty = true;
+
+	/**contentView滑动后的回调，用于提前加载更多*/
+	private Runnable scrollCallback;
+
+	private final DataSetObserver dataSetObserver = new DataSetObserver() {
+
+		@Override
+		public void onChanged() {
+			dirty = true;
+		}
+
+		@Override
+		public void onInvalidated() {
+			dirty = true;
+		}
+	};
+
+	View getContent() {
+		return content;
+	}
+
+	/**
+	 * @方法描述: 开始跟踪新的contentView，会先停止对之前contentView的跟踪
+	 * @param content
+	 * @param strategy
+	 */
+	void track(View content, PullReadinessStrategy strategy) {
+		stopListening();
+		this.content = content;
+		this.strategy = strategy;
+		this.dirty = true;
+	}
+
+	void setStrategy(PullReadinessStrategy strategy) {
+		this.strategy = strategy;
+		this.dirty = true;
+	}
+
+	/**
+	 * @方法描述: 注册contentView的滑动、布局及数据变化监听，在PullToRefreshView attach到窗口后调用
+	 * @param vto 所在窗口的ViewTreeObserver
+	 */
+	void startListening(ViewTreeObserver vto) {
+		if (listening || null == content) {
+			return;
+		}
+		listening = true;
+		dirty = true;
+		if (content instanceof AbsListView) {
+			observeAdapter(((AbsListView) content).getAdapter());
+		}
+		observer = vto;
+		observer.addOnScrollChangedListener(this);
+		observer.addOnGlobalLayoutListener(this);
+	}
+
+	/**
+	 * @方法描述: 移除所有监听，在PullToRefreshView从窗口detach时调用
+	 */
+	@SuppressWarnings("deprecation")
+	void stopListening() {
+		if (!listening) {
+			return;
+		}
+		listening = false;
+		observeAdapter(null);
+		if (null != observer) {
+			ViewTreeObserver vto = observer.isAlive() ? observer : content.getViewTreeObserver();
+			vto.removeOnScrollChangedListener(this);
+			vto.removeGlobalOnLayoutListener(this);
+			observer = null;
+		}
+	}
+
+	/**
+	 * 设置contentView滑动后的回调，只在注册了监听后生效
+	 */
+	void setScrollCallback(Runnable callback) {
+		this.scrollCallback = callback;
+	}
+
+	boolean isAtTop() {
+		update();
+		return atTop;
+	}
+
+	boolean isAtBottom() {
+		update();
+		return atBottom;
+	}
+
+	private void update() {
+		if (content instanceof AbsListView && ((AbsListView) content).getAdapter() != observedAdapter && listening) {
+			/*Adapter被替换*/
+			observeAdapter(((AbsListView) content).getAdapter());
+			dirty = true;
+		}
+		if (dirty || !listening) {
+			compute();
+		}
+	}
+
+	private void compute() {
+		dirty = false;
+		if (null == content || null == strategy) {
+			atTop = false;
+			atBottom = false;
+			return;
+		}
+		atTop = strategy.isReadyForPullDown(content);
+		atBottom = strategy.isReadyForPullUp(content);
+	}
+
+	private void observeAdapter(Adapter adapter) {
+		if (observedAdapter == adapter) {
+			return;
+		}
+		if (null != observedAdapter) {
+			observedAdapter.unregisterDataSetObserver(dataSetObserver);
+		}
+		observedAdapter = adapter;
+		if (null != adapter) {
+			adapter.registerDataSetObserver(dataSetObserver);
+		}
+	}
+
+	@Override
+	public void onScrollChanged() {
+		dirty = true;
+		if (null != scrollCallback) {
+			scrollCallback.run();
+		}
+	}
+
+	@Override
+	public void onGlobalLayout() {
+		dirty = true;
+	}
+}
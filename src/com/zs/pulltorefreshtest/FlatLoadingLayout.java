@@ -0,0 +1,326 @@
+package com.zs.pulltorefreshtest;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.support.v4.view.ViewCompat;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+
+/**
+ * 单个View实现的headerView和footerView，箭头、进度圈和文字都直接绘制在Canvas上，
+ * 文字预先生成StaticLayout。状态切换只需要重绘，不会像LoadingLayout那样因为setText()和
+ * 修改子View的可见性而重新布局。通过PullToRefreshView.setFlatLoadingLayoutEnabled()启用
+ */
+public class FlatLoadingLayout extends View implements ILoadingLayout {
+
+	private static final int STATE_PULL = 0;
+	private static final int STATE_RELEASE = 1;
+	private static final int STATE_REFRESHING = 2;
+
+	/**进度圈转一圈的时间，单位毫秒*/
+	private static final int SPINNER_PERIOD = 1000;
+	/**进度圈圆弧的角度*/
+	private static final int SPINNER_SWEEP = 270;
+
+	private final TextPaint labelPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+	private final TextPaint timePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+	private final Paint spinnerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private final RectF spinnerBounds = new RectF();
+
+	private Drawable arrow;
+
+	/**与pull_to_refresh_header.xml一致的尺寸*/
+	private final int verticalPadding;
+	private final int iconSize;
+	private final int textMarginLeft;
+	private final int timeMarginTop;
+
+	private String pullLabel;
+	private String refreshingLabel;
+	private String releaseLabel;
+	private StaticLayout pullLayout;
+	private StaticLayout refreshingLayout;
+	private StaticLayout releaseLayout;
+	private StaticLayout timeLayout;
+
+	private boolean showUpdateTime = true;
+	/**记录上次更新时间*/
+	private long time = -1;
+	/**生成并缓存更新时间文字*/
+	private final RefreshTimeFormatter timeFormatter;
+	/**timeLayout对应的文字，与新生成的是同一个对象时不再重建StaticLayout*/
+	private String timeText;
+
+	private int state = STATE_PULL;
+	/**是否被pauseIndicator()暂停，暂停时不再请求下一帧*/
+	private boolean indicatorPaused = false;
+
+	/**箭头旋转动画*/
+	private float arrowFromDegrees = 0;
+	private float arrowToDegrees = 0;
+	private long arrowAnimationStart = -1;
+
+	public FlatLoadingLayout(Context context, final int mode, boolean showUpdateTime, String releaseLabel, String pullLabel, String refreshingLabel) {
+		super(context);
+		final float density = getResources().getDisplayMetrics().density;
+		verticalPadding = Math.round(10 * density);
+		iconSize = Math.round(32 * density);
+		textMarginLeft = Math.round(8 * density);
+		timeMarginTop = Math.round(4 * density);
+
+		final int textColor = 0xFFB3B3B3;
+		labelPaint.setColor(textColor);
+		labelPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 14, getResources().getDisplayMetrics()));
+		timePaint.setColor(textColor);
+		timePaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 12, getResources().getDisplayMetrics()));
+		spinnerPaint.setColor(textColor);
+		spinnerPaint.setStyle(Paint.Style.STROKE);
+		spinnerPaint.setStrokeWidth(2 * density);
+
+		setBackgroundColor(getResources().getColor(R.color.white));
+		timeFormatter = new RefreshTimeFormatter(getResources());
+
+		this.showUpdateTime = showUpdateTime;
+		setReleaseLabel(releaseLabel);
+		setPullLabel(pullLabel);
+		setRefreshingLabel(refreshingLabel);
+		setMode(mode);
+		updateTimeLayout();
+	}
+
+	@Override
+	public void setMode(int mode) {
+		switch (mode) {
+			case PullToRefreshView.MODE_PULL_UP_TO_REFRESH:
+				arrow = getResources().getDrawable(R.drawable.pulltorefresh_up_arrow);
+				break;
+			case PullToRefreshView.MODE_PULL_DOWN_TO_REFRESH:
+			default:
+				arrow = getResources().getDrawable(R.drawable.pulltorefresh_down_arrow);
+				break;
+		}
+		arrow.setBounds(0, 0, iconSize, iconSize);
+		invalidate();
+	}
+
+	@Override
+	public void setShowUpdateTime(boolean showUpdateTime) {
+		if (this.showUpdateTime != showUpdateTime) {
+			this.showUpdateTime = showUpdateTime;
+			/*高度会变化*/
+			requestLayout();
+			invalidate();
+		}
+	}
+
+	@Override
+	public void reset() {
+		state = STATE_PULL;
+		setArrowRotation(0, false);
+		invalidate();
+	}
+
+	@Override
+	public void releaseToRefresh() {
+		state = STATE_RELEASE;
+		setArrowRotation(-180, true);
+		updateTimeLayout();
+		invalidate();
+	}
+
+	@Override
+	public void refreshing() {
+		state = STATE_REFRESHING;
+		setArrowRotation(0, false);
+		invalidate();
+	}
+
+	@Override
+	public void pullToRefresh() {
+		state = STATE_PULL;
+		setArrowRotation(0, true);
+		updateTimeLayout();
+		invalidate();
+	}
+
+	@Override
+	public void setRefreshTime(long time) {
+		this.time = time;
+		updateTimeLayout();
+		invalidate();
+	}
+
+	@Override
+	public void setRefreshTimeToCurrent() {
+		setRefreshTime(System.currentTimeMillis());
+	}
+
+	@Override
+	public void setTextColor(int color) {
+		labelPaint.setColor(color);
+		invalidate();
+	}
+
+	@Override
+	public void setPullLabel(String pullLabel) {
+		this.pullLabel = pullLabel;
+		this.pullLayout = buildLayout(pullLabel, labelPaint);
+		invalidate();
+	}
+
+	@Override
+	public void setRefreshingLabel(String refreshingLabel) {
+		this.refreshingLabel = refreshingLabel;
+		this.refreshingLayout = buildLayout(refreshingLabel, labelPaint);
+		invalidate();
+	}
+
+	@Override
+	public void setReleaseLabel(String releaseLabel) {
+		this.releaseLabel = releaseLabel;
+		this.releaseLayout = buildLayout(releaseLabel, labelPaint);
+		invalidate();
+	}
+
+	@Override
+	public void pauseIndicator() {
+		indicatorPaused = true;
+	}
+
+	@Override
+	public void resumeIndicator() {
+		if (indicatorPaused) {
+			indicatorPaused = false;
+			updateTimeLayout();
+			invalidate();
+		}
+	}
+
+	private void updateTimeLayout() {
+		if (indicatorPaused && null != timeLayout) {
+			return;
+		}
+		final String text = timeFormatter.format(time);
+		if (text != timeText) {
+			timeText = text;
+			timeLayout = buildLayout(text, timePaint);
+		}
+	}
+
+	private static StaticLayout buildLayout(String text, TextPaint paint) {
+		if (null == text) {
+			text = "";
+		}
+		final int width = (int) Math.ceil(Layout.getDesiredWidth(text, paint));
+		return new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+	}
+
+	private void setArrowRotation(float degrees, boolean animate) {
+		if (animate) {
+			arrowFromDegrees = getCurrentArrowRotation();
+			arrowAnimationStart = AnimationUtils.currentAnimationTimeMillis();
+		} else {
+			arrowFromDegrees = degrees;
+			arrowAnimationStart = -1;
+		}
+		arrowToDegrees = degrees;
+	}
+
+	private float getCurrentArrowRotation() {
+		if (arrowAnimationStart < 0) {
+			return arrowToDegrees;
+		}
+		final float fraction = (AnimationUtils.currentAnimationTimeMillis() - arrowAnimationStart)
+				/ (float) LoadingLayout.DEFAULT_ROTATION_ANIMATION_DURATION;
+		if (fraction >= 1) {
+			arrowAnimationStart = -1;
+			return arrowToDegrees;
+		}
+		return arrowFromDegrees + (arrowToDegrees - arrowFromDegrees) * fraction;
+	}
+
+	private StaticLayout getLabelLayout() {
+		switch (state) {
+		case STATE_RELEASE:
+			return releaseLayout;
+		case STATE_REFRESHING:
+			return refreshingLayout;
+		case STATE_PULL:
+		default:
+			return pullLayout;
+		}
+	}
+
+	private int getTextBlockHeight() {
+		int height = pullLayout.getHeight();
+		if (showUpdateTime) {
+			height += timeMarginTop + timeLayout.getHeight();
+		}
+		return height;
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		final int height = verticalPadding * 2 + Math.max(iconSize, getTextBlockHeight());
+		setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+				resolveSize(height, heightMeasureSpec));
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		final StaticLayout labelLayout = getLabelLayout();
+		int textWidth = labelLayout.getWidth();
+		if (showUpdateTime) {
+			textWidth = Math.max(textWidth, timeLayout.getWidth());
+		}
+		final int contentWidth = iconSize + textMarginLeft + textWidth;
+		final int left = (getWidth() - contentWidth) / 2;
+		final int centerY = getHeight() / 2;
+
+		/*箭头或进度圈*/
+		final int iconTop = centerY - iconSize / 2;
+		boolean animating = false;
+		if (state == STATE_REFRESHING) {
+			final long now = AnimationUtils.currentAnimationTimeMillis();
+			final float startAngle = (now % SPINNER_PERIOD) * 360f / SPINNER_PERIOD;
+			final float inset = iconSize / 4f;
+			spinnerBounds.set(left + inset, iconTop + inset, left + iconSize - inset, iconTop + iconSize - inset);
+			canvas.drawArc(spinnerBounds, startAngle, SPINNER_SWEEP, false, spinnerPaint);
+			animating = true;
+		} else {
+			final float rotation = getCurrentArrowRotation();
+			canvas.save();
+			canvas.translate(left, iconTop);
+			canvas.rotate(rotation, iconSize / 2f, iconSize / 2f);
+			arrow.draw(canvas);
+			canvas.restore();
+			animating = arrowAnimationStart >= 0;
+		}
+
+		/*文字，与布局文件一样水平居中排列*/
+		final int textLeft = left + iconSize + textMarginLeft;
+		int textTop = centerY - getTextBlockHeight() / 2;
+		canvas.save();
+		canvas.translate(textLeft + (textWidth - labelLayout.getWidth()) / 2, textTop);
+		labelLayout.draw(canvas);
+		canvas.restore();
+		if (showUpdateTime) {
+			textTop += labelLayout.getHeight() + timeMarginTop;
+			canvas.save();
+			canvas.translate(textLeft + (textWidth - timeLayout.getWidth()) / 2, textTop);
+			timeLayout.draw(canvas);
+			canvas.restore();
+		}
+
+		if (animating && !indicatorPaused) {
+			ViewCompat.postInvalidateOnAnimation(this);
+		}
+	}
+}
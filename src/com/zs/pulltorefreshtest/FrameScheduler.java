@@ -0,0 +1,133 @@
+package com.zs.pulltorefreshtest;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+/**
+ * 帧回调调度器，API 16及以上通过Choreographer在每次vsync时回调，
+ * 低版本使用Handler按16ms的间隔模拟。同一帧内多次请求只会回调一次
+ */
+abstract class FrameScheduler {
+
+	/**模拟帧间隔，单位毫秒*/
+	private static final long FALLBACK_FRAME_DELAY = 16;
+
+	/**
+	 * 帧回调接口
+	 */
+	interface Callback {
+
+		/**
+		 * @param frameTimeNanos 当前帧的时间（纳秒，以System.nanoTime()为基准）
+		 */
+		void doFrame(long frameTimeNanos);
+	}
+
+	/**
+	 * @方法描述: 创建与当前系统版本匹配的调度器，必须在有Looper的线程（UI线程）中调用
+	 * @param callback
+	 * @return
+	 */
+	static FrameScheduler create(Callback callback) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			return new ChoreographerScheduler(callback);
+		}
+		return new HandlerScheduler(callback);
+	}
+
+	private final Callback callback;
+	/**是否已经请求了下一帧*/
+	private boolean scheduled = false;
+
+	FrameScheduler(Callback callback) {
+		this.callback = callback;
+	}
+
+	/**
+	 * 请求在下一帧回调，已请求时忽略
+	 */
+	final void schedule() {
+		if (!scheduled) {
+			scheduled = true;
+			postFrame();
+		}
+	}
+
+	/**
+	 * 取消尚未执行的帧回调
+	 */
+	final void cancel() {
+		if (scheduled) {
+			scheduled = false;
+			removeFrame();
+		}
+	}
+
+	final boolean isScheduled() {
+		return scheduled;
+	}
+
+	final void dispatchFrame(long frameTimeNanos) {
+		if (scheduled) {
+			scheduled = false;
+			callback.doFrame(frameTimeNanos);
+		}
+	}
+
+	abstract void postFrame();
+
+	abstract void removeFrame();
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private static final class ChoreographerScheduler extends FrameScheduler implements Choreographer.FrameCallback {
+
+		private final Choreographer choreographer = Choreographer.getInstance();
+
+		ChoreographerScheduler(Callback callback) {
+			super(callback);
+		}
+
+		@Override
+		void postFrame() {
+			choreographer.postFrameCallback(this);
+		}
+
+		@Override
+		void removeFrame() {
+			choreographer.removeFrameCallback(this);
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			dispatchFrame(frameTimeNanos);
+		}
+	}
+
+	private static final class HandlerScheduler extends FrameScheduler implements Runnable {
+
+		private final Handler handler = new Handler(Looper.myLooper());
+
+		HandlerScheduler(Callback callback) {
+			super(callback);
+		}
+
+		@Override
+		void postFrame() {
+			handler.postDelayed(this, FALLBACK_FRAME_DELAY - SystemClock.uptimeMillis() % FALLBACK_FRAME_DELAY);
+		}
+
+		@Override
+		void removeFrame() {
+			handler.removeCallbacks(this);
+		}
+
+		@Override
+		public void run() {
+			dispatchFrame(System.nanoTime());
+		}
+	}
+}
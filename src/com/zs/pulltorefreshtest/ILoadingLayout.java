@@ -0,0 +1,53 @@
+package com.zs.pulltorefreshtest;
+
+/**
+ * PullToRefreshView的headerView和footerView需要实现的接口，实现类必须是View。
+ * 已有两种实现：基于布局文件的LoadingLayout，以及直接在Canvas上绘制的FlatLoadingLayout
+ */
+public interface ILoadingLayout {
+
+	/**恢复到初始的“下拉刷新”状态*/
+	public void reset();
+
+	/**进入“释放刷新”状态*/
+	public void releaseToRefresh();
+
+	/**进入刷新中状态*/
+	public void refreshing();
+
+	/**从“释放刷新”回到“下拉刷新”状态*/
+	public void pullToRefresh();
+
+	/**
+	 * 设置刷新时间，小于等于0时表示没有刷新过
+	 * @param time
+	 */
+	public void setRefreshTime(long time);
+
+	/**设置刷新时间为当前时间*/
+	public void setRefreshTimeToCurrent();
+
+	/**
+	 * 设置当前用于下拉刷新还是上拉更多，切换箭头方向
+	 * @param mode PullToRefreshView.MODE_PULL_DOWN_TO_REFRESH或MODE_PULL_UP_TO_REFRESH
+	 */
+	public void setMode(int mode);
+
+	/**设置是否显示上次更新时间*/
+	public void setShowUpdateTime(boolean showUpdateTime);
+
+	public void setTextColor(int color);
+
+	public void setPullLabel(String pullLabel);
+
+	public void setRefreshingLabel(String refreshingLabel);
+
+	public void setReleaseLabel(String releaseLabel);
+
+	/**完全不可见时暂停进度圈等动画以及更新时间文字的更新*/
+	public void pauseIndicator();
+
+	/**重新可见时恢复pauseIndicator()暂停的动画，并更新时间文字*/
+	public void resumeIndicator();
+
+}
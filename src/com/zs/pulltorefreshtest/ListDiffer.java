@@ -0,0 +1,95 @@
+package com.zs.pulltorefreshtest;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 按id比较刷新前后的两个列表，计算每一项的新位置以及内容是否变化。
+ * 只做一次遍历和一次哈希查找，复杂度O(N+M)，可在后台线程中执行。
+ * 通过PullToRefreshView.onRefreshComplete(List, List, ItemCallback)使用
+ */
+public final class ListDiffer {
+
+	/**
+	 * 列表项的比较方式，在后台线程中调用
+	 * @param <T> 列表项类型
+	 */
+	public static interface ItemCallback<T> {
+
+		/**
+		 * @return 列表项的唯一标识，需要正确实现equals()和hashCode()
+		 */
+		public Object getId(T item);
+
+		/**
+		 * @return id相同的两项显示的内容是否相同，不同时需要重新绑定
+		 */
+		public boolean areContentsTheSame(T oldItem, T newItem);
+	}
+
+	/**
+	 * 比较结果
+	 */
+	static final class Result {
+
+		/**旧列表中每一项在新列表中的位置，被删除时为-1*/
+		final int[] oldToNew;
+		/**新列表中每一项是否需要绑定（新插入或内容变化）*/
+		final boolean[] newChanged;
+		/**是否有插入、删除或移动*/
+		final boolean structural;
+
+		Result(int[] oldToNew, boolean[] newChanged, boolean structural) {
+			this.oldToNew = oldToNew;
+			this.newChanged = newChanged;
+			this.structural = structural;
+		}
+	}
+
+	private ListDiffer() {
+	}
+
+	static <T> Result diff(List<T> oldItems, List<T> newItems, ItemCallback<T> callback) {
+		final int oldSize = oldItems.size();
+		final int newSize = newItems.size();
+		final HashMap<Object, Integer> newPositions = new HashMap<Object, Integer>(newSize * 2);
+		boolean structural = oldSize != newSize;
+		for (int i = 0; i < newSize; i++) {
+			final Object id = callback.getId(newItems.get(i));
+			if (newPositions.containsKey(id)) {
+				/*id重复时只匹配第一次出现的项*/
+				structural = true;
+			} else {
+				newPositions.put(id, i);
+			}
+		}
+
+		final int[] oldToNew = new int[oldSize];
+		final boolean[] newChanged = new boolean[newSize];
+		final boolean[] matched = new boolean[newSize];
+		for (int i = 0; i < oldSize; i++) {
+			final T oldItem = oldItems.get(i);
+			final Integer position = newPositions.get(callback.getId(oldItem));
+			if (null == position || matched[position]) {
+				oldToNew[i] = -1;
+				structural = true;
+				continue;
+			}
+			final int newPosition = position;
+			matched[newPosition] = true;
+			oldToNew[i] = newPosition;
+			if (newPosition != i) {
+				structural = true;
+			}
+			if (!callback.areContentsTheSame(oldItem, newItems.get(newPosition))) {
+				newChanged[newPosition] = true;
+			}
+		}
+		for (int i = 0; i < newSize; i++) {
+			if (!matched[i]) {
+				newChanged[i] = true;
+			}
+		}
+		return new Result(oldToNew, newChanged, structural);
+	}
+}
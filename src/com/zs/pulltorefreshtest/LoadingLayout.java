@@ -1,13 +1,12 @@
 package com.zs.pulltorefreshtest;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.os.Build;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewPropertyAnimator;
 import android.view.animation.Animation;
 import android.view.animation.Interpolator;
 import android.view.animation.LinearInterpolator;
@@ -17,14 +16,26 @@ import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
-public class LoadingLayout extends FrameLayout {
+public class LoadingLayout extends FrameLayout implements ILoadingLayout {
 
 	static final int DEFAULT_ROTATION_ANIMATION_DURATION = 150;
+	/**进度圈转一圈的时间，单位毫秒*/
+	private static final int SPINNER_PERIOD = 1000;
+	/**进度圈一次动画转的圈数，足够覆盖一次刷新，每次进入刷新状态重新开始*/
+	private static final int SPINNER_TURNS = 1000;
+
+	/**
+	 * API 12以上箭头和进度圈使用ViewPropertyAnimator，API 21以上由RenderThread驱动，
+	 * 主线程在onRefresh()中短暂阻塞时仍能流畅转动；更低版本使用原来的RotateAnimation和ProgressBar
+	 */
+	private static final boolean USE_PROPERTY_ANIMATOR = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1;
+
+	/**插值器没有状态，所有动画共用一个，拖动过程中翻转箭头时不再分配对象*/
+	private static final Interpolator LINEAR_INTERPOLATOR = new LinearInterpolator();
 
-	private final String FORMAT = "MM-dd HH:mm";
-	
 	private final ImageView headerImage;
 	private final ProgressBar headerProgress;
+	private final ImageView headerSpinner;
 	private final TextView headerText;
 	private final TextView headerTime;
 
@@ -40,6 +51,14 @@ public class LoadingLayout extends FrameLayout {
 	 * 记录上次更新时间
 	 */
 	private long time = -1;
+	/**生成并缓存更新时间文字*/
+	private final RefreshTimeFormatter timeFormatter;
+	/**headerTime当前显示的文字，与新生成的是同一个对象时不再setText()*/
+	private String timeText;
+	/**是否处于刷新中状态*/
+	private boolean refreshingState = false;
+	/**是否被pauseIndicator()暂停*/
+	private boolean indicatorPaused = false;
 
 	private final Animation rotateAnimation, resetRotateAnimation;
 
@@ -50,25 +69,34 @@ public class LoadingLayout extends FrameLayout {
 		headerTime = (TextView) header.findViewById(R.id.pull_to_refresh_time);
 		headerImage = (ImageView) header.findViewById(R.id.pull_to_refresh_image);
 		headerProgress = (ProgressBar) header.findViewById(R.id.pull_to_refresh_progress);
+		headerSpinner = (ImageView) header.findViewById(R.id.pull_to_refresh_spinner);
+		timeFormatter = new RefreshTimeFormatter(getResources());
 
-		final Interpolator interpolator = new LinearInterpolator();
 		rotateAnimation = new RotateAnimation(0, -180, Animation.RELATIVE_TO_SELF, 0.5f, Animation.RELATIVE_TO_SELF,
 		        0.5f);
-		rotateAnimation.setInterpolator(interpolator);
+		rotateAnimation.setInterpolator(LINEAR_INTERPOLATOR);
 		rotateAnimation.setDuration(DEFAULT_ROTATION_ANIMATION_DURATION);
 		rotateAnimation.setFillAfter(true);
 
 		resetRotateAnimation = new RotateAnimation(-180, 0, Animation.RELATIVE_TO_SELF, 0.5f,
 		        Animation.RELATIVE_TO_SELF, 0.5f);
-		resetRotateAnimation.setInterpolator(interpolator);
+		resetRotateAnimation.setInterpolator(LINEAR_INTERPOLATOR);
 		resetRotateAnimation.setDuration(DEFAULT_ROTATION_ANIMATION_DURATION);
 		resetRotateAnimation.setFillAfter(true);
 
-		this.showUpdateTime = showUpdateTime;
 		this.releaseLabel = releaseLabel;
 		this.pullLabel = pullLabel;
 		this.refreshingLabel = refreshingLabel;
 
+		setMode(mode);
+		setShowUpdateTime(showUpdateTime);
+	}
+
+	/**
+	 * 设置当前用于下拉刷新还是上拉更多，切换箭头方向
+	 * @param mode
+	 */
+	public void setMode(int mode) {
 		switch (mode) {
 			case PullToRefreshView.MODE_PULL_UP_TO_REFRESH:
 				headerImage.setImageResource(R.drawable.pulltorefresh_up_arrow);
@@ -78,7 +106,14 @@ public class LoadingLayout extends FrameLayout {
 				headerImage.setImageResource(R.drawable.pulltorefresh_down_arrow);
 				break;
 		}
-		
+	}
+
+	/**
+	 * 设置是否显示上次更新时间
+	 * @param showUpdateTime
+	 */
+	public void setShowUpdateTime(boolean showUpdateTime) {
+		this.showUpdateTime = showUpdateTime;
 		if(!this.showUpdateTime){
 			headerTime.setVisibility(View.GONE);
 		}else{
@@ -88,54 +123,162 @@ public class LoadingLayout extends FrameLayout {
 
 	public void reset() {
 		headerText.setText(pullLabel);
+		refreshingState = false;
+		rotateArrow(0, false);
 		headerImage.setVisibility(View.VISIBLE);
-		headerProgress.setVisibility(View.GONE);
+		hideProgress();
 	}
 
 	public void releaseToRefresh() {
 		headerText.setText(releaseLabel);
-		headerImage.clearAnimation();
-		headerImage.startAnimation(rotateAnimation);
+		rotateArrow(-180, true);
 		if(time > 0){
-			headerTime.setText(getResources().getString(R.string.pull_to_refresh_last_time)
-					+ new SimpleDateFormat(FORMAT, Locale.CHINA).format(time));
+			updateTimeText();
 		}
 	}
 
 	public void refreshing() {
 		headerText.setText(refreshingLabel);
-		headerImage.clearAnimation();
+		refreshingState = true;
+		rotateArrow(0, false);
 		headerImage.setVisibility(View.GONE);
-		headerProgress.setVisibility(View.VISIBLE);
+		showProgress();
 	}
 
 	public void pullToRefresh() {
 		headerText.setText(pullLabel);
-		headerImage.clearAnimation();
-		headerImage.startAnimation(resetRotateAnimation);
+		rotateArrow(0, true);
 		if(time > 0){
-			headerTime.setText(getResources().getString(R.string.pull_to_refresh_last_time)
-					+ new SimpleDateFormat(FORMAT, Locale.CHINA).format(time));
+			updateTimeText();
 		}
 	}
 	
 	/**
-	 * 设置刷新时间
+	 * 设置刷新时间，小于等于0时表示没有刷新过
 	 * @param time
 	 */
 	public void setRefreshTime(long time) {
 		this.time = time;
-		headerTime.setText(getResources().getString(R.string.pull_to_refresh_last_time)
-				+ new SimpleDateFormat(FORMAT, Locale.CHINA).format(this.time));
+		updateTimeText();
 	}
 
 	/**
 	 * 设置刷新时间为当前时间
 	 */
 	public void setRefreshTimeToCurrent(){
-		this.time = new Date().getTime();
-		headerTime.setText(getResources().getString(R.string.pull_to_refresh_last_time)
-				+ new SimpleDateFormat(FORMAT, Locale.CHINA).format(this.time));
+		setRefreshTime(System.currentTimeMillis());
+	}
+
+	/**
+	 * 更新headerTime的文字，时间没有变化时不做任何事
+	 */
+	private void updateTimeText() {
+		if (indicatorPaused) {
+			return;
+		}
+		final String text = timeFormatter.format(time);
+		if (text != timeText) {
+			timeText = text;
+			headerTime.setText(text);
+		}
+	}
+
+	/**
+	 * 旋转箭头
+	 * @param degrees 目标角度，0或-180
+	 * @param animate 是否动画过渡
+	 */
+	private void rotateArrow(float degrees, boolean animate) {
+		if (USE_PROPERTY_ANIMATOR) {
+			animateRotation(headerImage, degrees, animate);
+			return;
+		}
+		headerImage.clearAnimation();
+		if (animate) {
+			headerImage.startAnimation(degrees == 0 ? resetRotateAnimation : rotateAnimation);
+		}
+	}
+
+	private void showProgress() {
+		if (USE_PROPERTY_ANIMATOR) {
+			headerSpinner.setVisibility(View.VISIBLE);
+			if (!indicatorPaused) {
+				startSpinner(headerSpinner);
+			}
+		} else {
+			/*ProgressBar不可见时会停止动画*/
+			headerProgress.setVisibility(indicatorPaused ? View.INVISIBLE : View.VISIBLE);
+		}
+	}
+
+	public void pauseIndicator() {
+		if (indicatorPaused) {
+			return;
+		}
+		indicatorPaused = true;
+		if (refreshingState) {
+			if (USE_PROPERTY_ANIMATOR) {
+				headerSpinner.animate().cancel();
+			} else {
+				headerProgress.setVisibility(View.INVISIBLE);
+			}
+		}
+	}
+
+	public void resumeIndicator() {
+		if (!indicatorPaused) {
+			return;
+		}
+		indicatorPaused = false;
+		if (refreshingState) {
+			showProgress();
+		}
+		if (time > 0) {
+			updateTimeText();
+		}
+	}
+
+	private void hideProgress() {
+		if (USE_PROPERTY_ANIMATOR) {
+			headerSpinner.animate().cancel();
+			headerSpinner.setVisibility(View.GONE);
+		} else {
+			headerProgress.setVisibility(View.GONE);
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB_MR1)
+	private static void animateRotation(View view, float degrees, boolean animate) {
+		view.animate().cancel();
+		if (!animate) {
+			view.setRotation(degrees);
+			return;
+		}
+		final ViewPropertyAnimator animator = view.animate()
+				.rotation(degrees)
+				.setDuration(DEFAULT_ROTATION_ANIMATION_DURATION)
+				.setInterpolator(LINEAR_INTERPOLATOR);
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			withLayer(animator);
+		}
+	}
+
+	/**
+	 * 进度圈用一个很长的线性旋转实现，不设置任何监听，API 21以上可以完全交给RenderThread执行
+	 */
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB_MR1)
+	private static void startSpinner(View view) {
+		view.animate().cancel();
+		view.setRotation(0);
+		view.animate()
+				.rotation(360f * SPINNER_TURNS)
+				.setDuration((long) SPINNER_PERIOD * SPINNER_TURNS)
+				.setInterpolator(LINEAR_INTERPOLATOR);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private static void withLayer(ViewPropertyAnimator animator) {
+		animator.withLayer();
 	}
 
 	public void setTextColor(int color) {
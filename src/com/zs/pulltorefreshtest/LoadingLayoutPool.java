@@ -0,0 +1,159 @@
+package com.zs.pulltorefreshtest;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import android.content.Context;
+import android.os.Process;
+import android.view.ViewGroup;
+
+/**
+ * LoadingLayout复用池，可在同一窗口内的多个PullToRefreshView之间共享（如ViewPager的各个页面）。
+ * PullToRefreshView在attach或第一次拉动时从池中获取headerView和footerView，detach时归还，
+ * 同时显示在屏幕上的只有一两个，不必为每个实例都创建一份。
+ * 只复用Context相同的LoadingLayout，不要在不同的Activity之间共享同一个池。
+ * 可通过preInflate()在后台线程提前创建，使第一次拉动时不必在主线程中inflate布局
+ */
+public class LoadingLayoutPool {
+
+	/**默认最多缓存的个数*/
+	public static final int DEFAULT_MAX_SIZE = 4;
+
+	/**所有池共用的提前创建线程，多次调用preInflate()时依次执行，空闲30秒后回收*/
+	private static Executor preInflateExecutor;
+
+	private final int maxSize;
+	private final ArrayList<LoadingLayout> pool;
+
+	public LoadingLayoutPool() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param maxSize 最多缓存的个数，超出时归还的LoadingLayout直接丢弃
+	 */
+	public LoadingLayoutPool(int maxSize) {
+		this.maxSize = maxSize;
+		this.pool = new ArrayList<LoadingLayout>(maxSize);
+	}
+
+	/**
+	 * @方法描述: 获取一个LoadingLayout，池中没有可用的时直接创建，复用的会被重置并设置新的文字
+	 * @param context
+	 * @param mode PullToRefreshView.MODE_PULL_DOWN_TO_REFRESH或MODE_PULL_UP_TO_REFRESH
+	 * @param showUpdateTime 是否显示上次更新时间
+	 * @param releaseLabel
+	 * @param pullLabel
+	 * @param refreshingLabel
+	 * @return
+	 */
+	public LoadingLayout acquire(Context context, int mode, boolean showUpdateTime,
+			String releaseLabel, String pullLabel, String refreshingLabel) {
+		final LoadingLayout loadingLayout = poll(context);
+		if (null == loadingLayout) {
+			return new LoadingLayout(context, mode, showUpdateTime, releaseLabel, pullLabel, refreshingLabel);
+		}
+		loadingLayout.setMode(mode);
+		loadingLayout.setShowUpdateTime(showUpdateTime);
+		loadingLayout.setReleaseLabel(releaseLabel);
+		loadingLayout.setPullLabel(pullLabel);
+		loadingLayout.setRefreshingLabel(refreshingLabel);
+		loadingLayout.setRefreshTime(-1);
+		loadingLayout.reset();
+		return loadingLayout;
+	}
+
+	/**
+	 * @方法描述: 归还LoadingLayout，调用前需要先从父View中移除
+	 * @param loadingLayout
+	 */
+	public synchronized void release(LoadingLayout loadingLayout) {
+		if (null == loadingLayout) {
+			return;
+		}
+		if (loadingLayout.getParent() instanceof ViewGroup) {
+			throw new IllegalStateException("LoadingLayout must be removed from its parent before release");
+		}
+		if (pool.size() < maxSize && !pool.contains(loadingLayout)) {
+			pool.add(loadingLayout);
+		}
+	}
+
+	/**
+	 * @方法描述: 在后台线程中提前创建LoadingLayout放入池中，可在启动或空闲时调用。
+	 * 创建完成前调用acquire()不会等待，而是在当前线程中直接创建
+	 * @param context 使用LoadingLayout的Activity，主题需要与之一致
+	 * @param count 创建的个数，与已缓存的个数之和不超过最大缓存个数
+	 */
+	public void preInflate(final Context context, final int count) {
+		getPreInflateExecutor().execute(new Runnable() {
+
+			@Override
+			public void run() {
+				final String releaseLabel = context.getString(R.string.pull_to_refresh_release_down_label);
+				final String pullLabel = context.getString(R.string.pull_to_refresh_pull_down_label);
+				final String refreshingLabel = context.getString(R.string.pull_to_refresh_refreshing_down_label);
+				for (int i = 0; i < count; i++) {
+					synchronized (LoadingLayoutPool.this) {
+						if (pool.size() >= maxSize) {
+							return;
+						}
+					}
+					final LoadingLayout loadingLayout = new LoadingLayout(context,
+							PullToRefreshView.MODE_PULL_DOWN_TO_REFRESH, true,
+							releaseLabel, pullLabel, refreshingLabel);
+					release(loadingLayout);
+				}
+			}
+		});
+	}
+
+	private static synchronized Executor getPreInflateExecutor() {
+		if (null == preInflateExecutor) {
+			/*核心线程数为0，任务排队时按需创建唯一的线程，空闲后回收（allowCoreThreadTimeOut()需要API 9）*/
+			preInflateExecutor = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+						@Override
+						public Thread newThread(final Runnable r) {
+							return new Thread(new Runnable() {
+
+								@Override
+								public void run() {
+									Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+									r.run();
+								}
+							}, "LoadingLayoutPreInflate");
+						}
+					});
+		}
+		return preInflateExecutor;
+	}
+
+	/**
+	 * 清空缓存
+	 */
+	public synchronized void clear() {
+		pool.clear();
+	}
+
+	/**
+	 * @return 当前缓存的个数
+	 */
+	public synchronized int size() {
+		return pool.size();
+	}
+
+	private synchronized LoadingLayout poll(Context context) {
+		for (int i = pool.size() - 1; i >= 0; i--) {
+			if (pool.get(i).getContext() == context) {
+				return pool.remove(i);
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,362 @@
+package com.zs.pulltorefreshtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+
+/**
+ * 无限加载列表的分页数据窗口，内存中最多保留可见位置附近的若干页，较远的页只保留条数（占位），
+ * 总条数和位置保持不变，滑动回来时通过同一个PageLoader重新加载。
+ * 同时作为PullToRefreshView的异步刷新、异步加载更多接口和contentView的滑动监听使用：
+ * <pre>
+ * pullToRefreshView.setOnAsyncRefreshListener(window);
+ * pullToRefreshView.setOnAsyncLoadMoreListener(window);
+ * listView.setOnScrollListener(window);
+ * window.setAdapter(adapter);
+ * </pre>
+ * Adapter的getCount()返回getCount()，getItem()返回get()，返回null的项显示为占位。只能在主线程中使用
+ * @param <T> 列表项类型
+ */
+public class PagedListWindow<T> implements PullToRefreshView.OnAsyncRefreshListener<List<T>>,
+		PullToRefreshView.OnAsyncLoadMoreListener<List<T>>, AbsListView.OnScrollListener {
+
+	/**默认最多保留的页数*/
+	public static final int DEFAULT_MAX_RESIDENT_PAGES = 5;
+
+	/**
+	 * 分页加载接口，刷新、加载更多和重新加载被移出的页都通过它完成
+	 */
+	public static interface PageLoader<T> {
+
+		/**
+		 * 在后台线程中加载一页数据
+		 * @param pageIndex 页码，从0开始
+		 * @return 该页的数据，为空时表示没有更多数据
+		 */
+		public List<T> loadPage(int pageIndex) throws Exception;
+	}
+
+	/**
+	 * 一页数据，被移出时items为null，只保留条数
+	 */
+	private static final class Page<T> {
+
+		final int index;
+		int size;
+		List<T> items;
+		boolean loading = false;
+
+		Page(int index, List<T> items) {
+			this.index = index;
+			this.items = items;
+			this.size = items.size();
+		}
+	}
+
+	private final PageLoader<T> loader;
+	private final int maxResidentPages;
+	private final ArrayList<Page<T>> pages = new ArrayList<Page<T>>();
+	/**每一页第一项的位置，页的条数变化后重新计算*/
+	private int[] pageStarts = new int[0];
+	private boolean pageStartsDirty = false;
+	private int count = 0;
+	private boolean hasMore = true;
+	/**每次刷新后加一，丢弃刷新之前发起的重新加载的结果*/
+	private int generation = 0;
+	/**最近一次可见区域中间的页*/
+	private int centerPage = 0;
+
+	private BaseAdapter adapter;
+	/**重新加载被移出的页使用的Executor，为null时使用默认的后台线程池*/
+	private Executor executor;
+	/**使用者的滑动监听，由本类转发*/
+	private AbsListView.OnScrollListener onScrollListener;
+
+	public PagedListWindow(PageLoader<T> loader) {
+		this(loader, DEFAULT_MAX_RESIDENT_PAGES);
+	}
+
+	/**
+	 * @param loader
+	 * @param maxResidentPages 最多保留的页数，至少为2
+	 */
+	public PagedListWindow(PageLoader<T> loader, int maxResidentPages) {
+		if (null == loader) {
+			throw new IllegalArgumentException("loader must not be null");
+		}
+		if (maxResidentPages < 2) {
+			throw new IllegalArgumentException("maxResidentPages must be at least 2");
+		}
+		this.loader = loader;
+		this.maxResidentPages = maxResidentPages;
+	}
+
+	/**
+	 * 设置显示数据的Adapter，数据变化时调用其notifyDataSetChanged()
+	 * @param adapter
+	 */
+	public void setAdapter(BaseAdapter adapter) {
+		this.adapter = adapter;
+	}
+
+	/**
+	 * 设置重新加载被移出的页使用的Executor，刷新和加载更多使用PullToRefreshView的Executor
+	 * @param executor
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * 设置contentView的滑动监听，由于本类需要占用AbsListView唯一的OnScrollListener，使用者的监听通过这里转发
+	 * @param listener
+	 */
+	public void setOnScrollListener(AbsListView.OnScrollListener listener) {
+		this.onScrollListener = listener;
+	}
+
+	/**
+	 * @return 总条数，包括被移出的页
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @param position
+	 * @return 该位置的数据，所在的页被移出时返回null，应显示为占位
+	 */
+	public T get(int position) {
+		final Page<T> page = pages.get(findPage(position));
+		if (null == page.items) {
+			return null;
+		}
+		return page.items.get(position - pageStarts[page.index]);
+	}
+
+	/**
+	 * @return 是否还有更多数据，最后一次加载更多返回空数据时为false
+	 */
+	public boolean hasMore() {
+		return hasMore;
+	}
+
+	/**
+	 * @return 当前保留在内存中的页数
+	 */
+	public int getResidentPageCount() {
+		int resident = 0;
+		for (int i = 0; i < pages.size(); i++) {
+			if (null != pages.get(i).items) {
+				resident++;
+			}
+		}
+		return resident;
+	}
+
+	@Override
+	public Callable<List<T>> onRefresh() {
+		return new Callable<List<T>>() {
+
+			@Override
+			public List<T> call() throws Exception {
+				return loader.loadPage(0);
+			}
+		};
+	}
+
+	@Override
+	public void onRefreshSuccess(List<T> result) {
+		generation++;
+		pages.clear();
+		pageStartsDirty = true;
+		count = 0;
+		centerPage = 0;
+		hasMore = null != result && !result.isEmpty();
+		if (hasMore) {
+			appendPage(result);
+		}
+		notifyChanged();
+	}
+
+	@Override
+	public void onRefreshFailure(Throwable error) {
+	}
+
+	@Override
+	public Callable<List<T>> onLoadMore() {
+		final int pageIndex = pages.size();
+		final boolean more = hasMore;
+		return new Callable<List<T>>() {
+
+			@Override
+			public List<T> call() throws Exception {
+				if (!more) {
+					return Collections.emptyList();
+				}
+				return loader.loadPage(pageIndex);
+			}
+		};
+	}
+
+	@Override
+	public void onLoadMoreSuccess(List<T> result) {
+		if (null == result || result.isEmpty()) {
+			hasMore = false;
+			return;
+		}
+		appendPage(result);
+		evictFarPages();
+		notifyChanged();
+	}
+
+	@Override
+	public void onLoadMoreFailure(Throwable error) {
+	}
+
+	@Override
+	public void onScrollStateChanged(AbsListView view, int scrollState) {
+		if (null != onScrollListener) {
+			onScrollListener.onScrollStateChanged(view, scrollState);
+		}
+	}
+
+	@Override
+	public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+		if (null != onScrollListener) {
+			onScrollListener.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
+		}
+		if (pages.isEmpty() || visibleItemCount <= 0) {
+			return;
+		}
+		final int headerCount = view instanceof ListView ? ((ListView) view).getHeaderViewsCount() : 0;
+		final int first = clamp(firstVisibleItem - headerCount);
+		final int last = clamp(firstVisibleItem + visibleItemCount - 1 - headerCount);
+		final int firstPage = findPage(first);
+		final int lastPage = findPage(last);
+		final int center = findPage((first + last) / 2);
+		if (center != centerPage) {
+			centerPage = center;
+			evictFarPages();
+		}
+		/*可见的页及前后各一页被移出时重新加载*/
+		final int from = Math.max(0, firstPage - 1);
+		final int to = Math.min(pages.size() - 1, lastPage + 1);
+		for (int i = from; i <= to; i++) {
+			final Page<T> page = pages.get(i);
+			if (null == page.items && !page.loading && isResident(i)) {
+				reload(page);
+			}
+		}
+	}
+
+	private int clamp(int position) {
+		return Math.max(0, Math.min(count - 1, position));
+	}
+
+	private void appendPage(List<T> items) {
+		pages.add(new Page<T>(pages.size(), new ArrayList<T>(items)));
+		pageStartsDirty = true;
+		count += items.size();
+	}
+
+	/**
+	 * 是否处于需要保留的范围内
+	 */
+	private boolean isResident(int pageIndex) {
+		final int before = (maxResidentPages - 1) / 2;
+		final int after = maxResidentPages - 1 - before;
+		/*正在加载更多时最后一页总是保留，避免刚加载完就被移出*/
+		return (pageIndex >= centerPage - before && pageIndex <= centerPage + after)
+				|| pageIndex == pages.size() - 1;
+	}
+
+	/**
+	 * 移出距离可见区域较远的页，只保留条数
+	 */
+	private void evictFarPages() {
+		for (int i = 0; i < pages.size(); i++) {
+			final Page<T> page = pages.get(i);
+			if (null != page.items && !isResident(i)) {
+				page.items = null;
+			}
+		}
+	}
+
+	private void reload(final Page<T> page) {
+		page.loading = true;
+		final int requestGeneration = generation;
+		final AsyncOperation<List<T>> operation = new AsyncOperation<List<T>>(new Callable<List<T>>() {
+
+			@Override
+			public List<T> call() throws Exception {
+				return loader.loadPage(page.index);
+			}
+		}, new AsyncOperation.Callback<List<T>>() {
+
+			@Override
+			public void onSuccess(List<T> result) {
+				page.loading = false;
+				if (requestGeneration != generation || null == result) {
+					return;
+				}
+				page.items = new ArrayList<T>(result);
+				if (result.size() != page.size) {
+					/*数据源发生了变化，条数以新数据为准*/
+					count += result.size() - page.size;
+					page.size = result.size();
+					pageStartsDirty = true;
+				}
+				if (!isResident(page.index)) {
+					page.items = null;
+				}
+				notifyChanged();
+			}
+
+			@Override
+			public void onFailure(Throwable error) {
+				/*下次滑动时重试*/
+				page.loading = false;
+			}
+		});
+		operation.start(null != executor ? executor : AsyncOperation.getDefaultExecutor(), 0);
+	}
+
+	/**
+	 * @return position所在的页
+	 */
+	private int findPage(int position) {
+		if (pageStartsDirty || pageStarts.length != pages.size()) {
+			pageStarts = new int[pages.size()];
+			int start = 0;
+			for (int i = 0; i < pages.size(); i++) {
+				pageStarts[i] = start;
+				start += pages.get(i).size;
+			}
+			pageStartsDirty = false;
+		}
+		int low = 0;
+		int high = pageStarts.length - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (pageStarts[mid] <= position) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	private void notifyChanged() {
+		if (null != adapter) {
+			adapter.notifyDataSetChanged();
+		}
+	}
+}
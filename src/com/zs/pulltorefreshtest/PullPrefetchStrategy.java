@@ -0,0 +1,20 @@
+package com.zs.pulltorefreshtest;
+
+import android.view.View;
+
+/**
+ * 在PullReadinessStrategy的基础上判断contentView是否接近底部，用于提前加载更多。
+ * 没有实现该接口的策略以isReadyForPullUp()作为接近底部的判断
+ */
+public interface PullPrefetchStrategy extends PullReadinessStrategy {
+
+	/**
+	 * @方法描述: contentView是否已经接近底部，满足任一距离条件即可
+	 * @param content PullToRefreshView中的contentView
+	 * @param itemThreshold 距离最后一项不超过的项数，不按项计算的控件忽略
+	 * @param pixelThreshold 距离底部不超过的像素
+	 * @return
+	 */
+	public boolean isNearEnd(View content, int itemThreshold, int pixelThreshold);
+
+}
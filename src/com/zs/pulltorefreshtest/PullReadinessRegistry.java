@@ -0,0 +1,243 @@
+package com.zs.pulltorefreshtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewGroup;
+import android.webkit.WebView;
+import android.widget.AbsListView;
+import android.widget.Adapter;
+import android.widget.GridView;
+import android.widget.HorizontalScrollView;
+import android.widget.ScrollView;
+
+/**
+ * PullReadinessStrategy的注册表，按contentView的类查找策略，
+ * 沿父类向上匹配已注册的策略，每个类只解析一次并缓存结果。
+ * 内置AbsListView、GridView、ScrollView、HorizontalScrollView、WebView和RecyclerView的策略，
+ * 其它View使用canScrollVertically()判断
+ */
+public final class PullReadinessRegistry {
+
+	/**AbsListView（ListView、GridView、ExpandableListView等）的边界判断*/
+	public static final PullPrefetchStrategy ABS_LIST_VIEW = new PullPrefetchStrategy() {
+
+		@Override
+		public boolean isReadyForPullDown(View content) {
+			AbsListView listView = (AbsListView) content;
+			final Adapter adapter = listView.getAdapter();
+			if (null == adapter || adapter.isEmpty()) return true;
+
+			if (listView.getFirstVisiblePosition() == 0) {
+				final View firstVisibleChild = listView.getChildAt(0);
+				if (firstVisibleChild != null) {
+					return firstVisibleChild.getTop() >= listView.getPaddingTop();
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public boolean isReadyForPullUp(View content) {
+			AbsListView listView = (AbsListView) content;
+			final Adapter adapter = listView.getAdapter();
+			if (null == adapter || adapter.isEmpty()) return true;
+
+			final int lastItemPosition = listView.getCount() - 1;
+			final int lastVisiblePosition = listView.getLastVisiblePosition();
+			if (lastVisiblePosition >= lastItemPosition - 1) {
+				final int childIndex = lastVisiblePosition - listView.getFirstVisiblePosition();
+				final View lastVisibleChild = listView.getChildAt(childIndex);
+				if (lastVisibleChild != null) {
+					return lastVisibleChild.getBottom() <= listView.getHeight() - listView.getPaddingBottom();
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public boolean isNearEnd(View content, int itemThreshold, int pixelThreshold) {
+			AbsListView listView = (AbsListView) content;
+			final Adapter adapter = listView.getAdapter();
+			if (null == adapter || adapter.isEmpty()) return false;
+
+			final int lastItemPosition = listView.getCount() - 1;
+			final int lastVisiblePosition = listView.getLastVisiblePosition();
+			if (lastVisiblePosition >= lastItemPosition - itemThreshold) {
+				return true;
+			}
+			/*与项数无关地按像素判断：最后一个可见子View超出底部的距离，加上其后各项按可见项平均高度估算的高度，
+			行高较大时项数阈值还没有满足也能提前加载*/
+			final int childCount = listView.getChildCount();
+			if (childCount == 0) {
+				return false;
+			}
+			final View firstChild = listView.getChildAt(0);
+			final View lastChild = listView.getChildAt(childCount - 1);
+			final int averageHeight = (lastChild.getBottom() - firstChild.getTop()) / childCount;
+			final long remaining = lastChild.getBottom() - (listView.getHeight() - listView.getPaddingBottom())
+					+ (long) (lastItemPosition - lastVisiblePosition) * averageHeight;
+			return remaining <= pixelThreshold;
+		}
+	};
+
+	/**ScrollView及只有一个子View的纵向滚动容器的边界判断*/
+	public static final PullPrefetchStrategy SCROLL_VIEW = new PullPrefetchStrategy() {
+
+		@Override
+		public boolean isReadyForPullDown(View content) {
+			return content.getScrollY() == 0;
+		}
+
+		@Override
+		public boolean isReadyForPullUp(View content) {
+			if (content instanceof ViewGroup && ((ViewGroup) content).getChildCount() > 0) {
+				int off = content.getScrollY() + content.getHeight()
+						- ((ViewGroup) content).getChildAt(0).getHeight();
+				return off >= 0;
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isNearEnd(View content, int itemThreshold, int pixelThreshold) {
+			if (content instanceof ViewGroup && ((ViewGroup) content).getChildCount() > 0) {
+				int remaining = ((ViewGroup) content).getChildAt(0).getHeight()
+						- content.getScrollY() - content.getHeight();
+				return remaining <= pixelThreshold;
+			}
+			return false;
+		}
+	};
+
+	/**HorizontalScrollView在纵向上不可滚动，始终处于顶部和底部*/
+	public static final PullReadinessStrategy HORIZONTAL_SCROLL_VIEW = new PullReadinessStrategy() {
+
+		@Override
+		public boolean isReadyForPullDown(View content) {
+			return true;
+		}
+
+		@Override
+		public boolean isReadyForPullUp(View content) {
+			return true;
+		}
+	};
+
+	/**WebView的边界判断*/
+	public static final PullPrefetchStrategy WEB_VIEW = new PullPrefetchStrategy() {
+
+		@Override
+		public boolean isReadyForPullDown(View content) {
+			return content.getScrollY() == 0;
+		}
+
+		@SuppressWarnings("deprecation")
+		@Override
+		public boolean isReadyForPullUp(View content) {
+			WebView webView = (WebView) content;
+			float exactContentHeight = (float) Math.floor(webView.getContentHeight() * webView.getScale());
+			return webView.getScrollY() + webView.getHeight() >= exactContentHeight;
+		}
+
+		@SuppressWarnings("deprecation")
+		@Override
+		public boolean isNearEnd(View content, int itemThreshold, int pixelThreshold) {
+			WebView webView = (WebView) content;
+			float exactContentHeight = (float) Math.floor(webView.getContentHeight() * webView.getScale());
+			return exactContentHeight - webView.getScrollY() - webView.getHeight() <= pixelThreshold;
+		}
+	};
+
+	/**通过canScrollVertically()判断，适用于RecyclerView等正确实现了computeVerticalScrollXXX()的View，API 14以下退化为SCROLL_VIEW*/
+	public static final PullReadinessStrategy SCROLLING_VIEW = new PullReadinessStrategy() {
+
+		@Override
+		public boolean isReadyForPullDown(View content) {
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+				return !canScrollVertically(content, -1);
+			}
+			return SCROLL_VIEW.isReadyForPullDown(content);
+		}
+
+		@Override
+		public boolean isReadyForPullUp(View content) {
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+				return !canScrollVertically(content, 1);
+			}
+			return SCROLL_VIEW.isReadyForPullUp(content);
+		}
+
+		@TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+		private boolean canScrollVertically(View content, int direction) {
+			return content.canScrollVertically(direction);
+		}
+	};
+
+	/**已注册的策略*/
+	private static final Map<Class<?>, PullReadinessStrategy> registered = new HashMap<Class<?>, PullReadinessStrategy>();
+	/**解析结果缓存*/
+	private static final Map<Class<?>, PullReadinessStrategy> resolved = new HashMap<Class<?>, PullReadinessStrategy>();
+
+	static {
+		registered.put(AbsListView.class, ABS_LIST_VIEW);
+		registered.put(GridView.class, ABS_LIST_VIEW);
+		registered.put(ScrollView.class, SCROLL_VIEW);
+		registered.put(HorizontalScrollView.class, HORIZONTAL_SCROLL_VIEW);
+		registered.put(WebView.class, WEB_VIEW);
+		registerByName("android.support.v7.widget.RecyclerView", SCROLLING_VIEW);
+		registerByName("androidx.recyclerview.widget.RecyclerView", SCROLLING_VIEW);
+	}
+
+	private PullReadinessRegistry() {
+	}
+
+	/**
+	 * @方法描述: 注册某类View（及其子类）的策略，会覆盖已有的注册
+	 * @param viewClass
+	 * @param strategy
+	 */
+	public static synchronized void register(Class<? extends View> viewClass, PullReadinessStrategy strategy) {
+		if (null == viewClass || null == strategy) {
+			throw new IllegalArgumentException("viewClass and strategy must not be null");
+		}
+		registered.put(viewClass, strategy);
+		resolved.clear();
+	}
+
+	/**
+	 * @方法描述: 查找某类View对应的策略，没有注册时返回SCROLLING_VIEW
+	 * @param viewClass
+	 * @return
+	 */
+	public static synchronized PullReadinessStrategy resolve(Class<? extends View> viewClass) {
+		PullReadinessStrategy strategy = resolved.get(viewClass);
+		if (null == strategy) {
+			for (Class<?> c = viewClass; c != null && c != Object.class; c = c.getSuperclass()) {
+				strategy = registered.get(c);
+				if (null != strategy) {
+					break;
+				}
+			}
+			if (null == strategy) {
+				strategy = SCROLLING_VIEW;
+			}
+			resolved.put(viewClass, strategy);
+		}
+		return strategy;
+	}
+
+	/**
+	 * 按类名注册可选依赖中的控件，类不存在时忽略
+	 */
+	private static void registerByName(String className, PullReadinessStrategy strategy) {
+		try {
+			registered.put(Class.forName(className, false, PullReadinessRegistry.class.getClassLoader()), strategy);
+		} catch (ClassNotFoundException e) {
+			// 未引入对应的库
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package com.zs.pulltorefreshtest;
+
+import android.view.View;
+
+/**
+ * 判断contentView是否滑动到顶部或底部的策略接口，
+ * 通过PullReadinessRegistry.register()为自定义的滚动控件注册，
+ * 或通过PullToRefreshView.setPullReadinessStrategy()为单个控件指定
+ */
+public interface PullReadinessStrategy {
+
+	/**
+	 * @方法描述: contentView当前是否处于顶部，可以进行下拉刷新
+	 * @param content PullToRefreshView中的contentView
+	 * @return
+	 */
+	public boolean isReadyForPullDown(View content);
+
+	/**
+	 * @方法描述: contentView当前是否处于底部，可以进行上拉更多
+	 * @param content PullToRefreshView中的contentView
+	 * @return
+	 */
+	public boolean isReadyForPullUp(View content);
+
+}
@@ -1,23 +1,32 @@
 package com.zs.pulltorefreshtest;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.widget.AbsListView;
 import android.widget.Adapter;
-import android.widget.LinearLayout;
+import android.widget.BaseAdapter;
+import android.widget.HeaderViewListAdapter;
 import android.widget.ListView;
 import android.widget.RelativeLayout;
-import android.widget.ScrollView;
-import android.widget.Scroller;
 
 /**
  * 下拉刷新控件，主要测试了ScrollView，代码中已实现ListView下拉和上拉刷新，不过没有怎么测
- * 至于GridView、WebView等，代码中没有实现，不过很好拓展，在isReadyForPullUp() 和 
- * isReadyForPullDown()这两个方法中加入相应的View的上下边界判断就OK了
+ * contentView的上下边界判断由PullReadinessStrategy完成，已内置ListView、GridView、ScrollView、WebView等，
+ * 其它控件可通过PullReadinessRegistry.register()或setPullReadinessStrategy()拓展。
+ * 为保持API兼容仍然继承RelativeLayout，但测量和布局由本类完成：控件由headerView、contentView和footerView
+ * 三个槽位组成，contentView上的RelativeLayout规则（如alignParentBottom、below）不再生效，只支持margin
  * @author zhangshuo 
  * @version 1.0
  */
@@ -27,13 +36,20 @@ public class PullToRefreshView extends RelativeLayout {
 	static final float FRICTION = 2.0f;
 
 	/**显示“下拉刷新”的状态*/
-	static final int PULL_TO_REFRESH = 0x0;
+	public static final int PULL_TO_REFRESH = 0x0;
 	/**显示“释放刷新”的状态*/
-	static final int RELEASE_TO_REFRESH = 0x1;
+	public static final int RELEASE_TO_REFRESH = 0x1;
 	/**用户通过下拉进入的刷新状态*/
-	static final int REFRESHING = 0x2;
+	public static final int REFRESHING = 0x2;
 	/**用户通过代码强制进入的刷新状态*/
-	static final int MANUAL_REFRESHING = 0x3;
+	public static final int MANUAL_REFRESHING = 0x3;
+
+	/**没有拉出headerView或footerView*/
+	public static final int PULL_DIRECTION_NONE = 0x0;
+	/**正在拉出headerView*/
+	public static final int PULL_DIRECTION_DOWN = 0x1;
+	/**正在拉出footerView*/
+	public static final int PULL_DIRECTION_UP = 0x2;
 
 	/**私有模式，不提供对外调用，
 	 * 仅用来标示“用户下拉刷新成功后，headerView显示在头部，当用户手指向上滑动时，将headerView跟随用户滑动向上滑动”
@@ -48,8 +64,10 @@ public class PullToRefreshView extends RelativeLayout {
 
 
 	private Context context;
-	/**滚动对象*/
-	private Scroller scroller;
+	/**回弹动画，由frameScheduler按帧驱动*/
+	private final SpringAnimator springAnimator = new SpringAnimator();
+	/**回弹动画所在的一侧，headerView为-1，footerView为1，动画不会越过0进入另一侧*/
+	private int springSide = 0;
 	/**判断用户手指的移动距离是否足以响应为move*/
 	private int touchSlop;
 
@@ -57,6 +75,64 @@ public class PullToRefreshView extends RelativeLayout {
 	private float lastMotionX;
 	private float lastMotionY;
 	private boolean isBeingDragged = false;
+	/**标示当前拖动是否由接住回弹动画开始且手指尚未移动超过touchSlop，此时抬起手指会继续原来的动画*/
+	private boolean snapBackCaught = false;
+	/**被接住的回弹动画的目标位置*/
+	private int snapBackTarget;
+	/**接住回弹动画时按下的位置*/
+	private float snapBackDownY;
+
+	/**View.SCROLL_AXIS_VERTICAL，API 21加入*/
+	private static final int SCROLL_AXIS_VERTICAL = 1 << 1;
+	/**当前接受的嵌套滑动方向*/
+	private int nestedScrollAxes;
+	/**标示是否正在处理子View的嵌套滑动*/
+	private boolean nestedScrollInProgress = false;
+	/**嵌套滑动过程中headerView或footerView拉出的距离（即scrollY），保留小数以免累积误差*/
+	private float nestedScrollY;
+	/**嵌套滑动结束时的fling速度，单位px/s，向下为正*/
+	private float nestedFlingVelocityY;
+	/**本次嵌套滑动是否拉动过headerView或footerView*/
+	private boolean nestedPulled = false;
+
+	/**帧回调调度器，用于把同一帧内的多个move事件合并成一次滑动处理*/
+	private FrameScheduler frameScheduler;
+	/**标示是否按帧合并处理拖动事件*/
+	private boolean frameCoalescingEnabled = true;
+	/**标示是否有尚未处理的拖动位置，等待下一帧统一处理*/
+	private boolean pullEventPending = false;
+
+	/**快速滑动触发刷新的默认速度，单位dip/s*/
+	private static final int DEFAULT_FLING_TO_REFRESH_VELOCITY_DIP = 1000;
+	/**快速滑动触发刷新时，headerView或footerView至少需要拉出的比例*/
+	private static final float FLING_TO_REFRESH_MIN_DISTANCE_RATIO = 1 / 3f;
+
+	/**手势速度跟踪，每次手势开始时获取，结束时回收*/
+	private VelocityTracker velocityTracker;
+
+	/**提前加载更多的默认距离：剩余项数*/
+	private static final int DEFAULT_PREFETCH_ITEM_THRESHOLD = 5;
+	/**提前加载更多的默认距离：剩余像素，单位dip*/
+	private static final int DEFAULT_PREFETCH_DISTANCE_DIP = 500;
+	/**是否在contentView接近底部时自动加载更多*/
+	private boolean loadMorePrefetchEnabled = false;
+	private int prefetchItemThreshold = DEFAULT_PREFETCH_ITEM_THRESHOLD;
+	private int prefetchPixelThreshold;
+	/**已经提前开始加载更多，还没有结束*/
+	private boolean prefetchInFlight = false;
+	/**在contentView的滑动回调之外回调加载更多接口，避免在其布局过程中修改数据*/
+	private final Runnable prefetchRunnable = new Runnable() {
+
+		@Override
+		public void run() {
+			if (prefetchInFlight) {
+				dispatchLoadMore();
+			}
+		}
+	};
+	private int maximumFlingVelocity;
+	/**快速滑动触发刷新或加载更多的速度，单位px/s，小于等于0时禁用*/
+	private float flingToRefreshVelocity;
 
 	/**记录headerView当前的状态*/
 	private int headerState = PULL_TO_REFRESH;
@@ -67,18 +143,37 @@ public class PullToRefreshView extends RelativeLayout {
 	/**当前处于的模式*/
 	private int currentMode;
 	
-	/**根据不同的mode，contentView所在父View的位置不同，下拉刷新时为1，上拉更多时为1，上拉下拉都支持时为2*/
-	private int index = 1;
-
 	/**标示当处于刷新状态时，是否需要禁用滑动*/
 	private boolean disableScrollingWhileRefreshing = false;
 
 	/**标示是否允许滑动刷新*/
 	private boolean isPullToRefreshEnabled = true;
 
-	private LoadingLayout headerLayout;
-	private LoadingLayout footerLayout;
+	/**通过setPullReadinessStrategy()指定的边界判断策略*/
+	private PullReadinessStrategy readinessStrategy;
+	/**按contentView的类解析并缓存的边界判断策略*/
+	private PullReadinessStrategy resolvedReadinessStrategy;
+	/**resolvedReadinessStrategy对应的contentView的类*/
+	private Class<? extends View> resolvedReadinessClass;
+	/**跟踪contentView是否处于顶部或底部*/
+	private final ContentEdgeTracker edgeTracker = new ContentEdgeTracker();
+	/**是否已attach到窗口*/
+	private boolean attachedToWindow = false;
+
+	/**headerView和footerView在第一次需要时才创建，见ensureHeaderLayout()和ensureFooterLayout()*/
+	private ILoadingLayout headerLayout;
+	private ILoadingLayout footerLayout;
+	/**headerView和footerView的高度，也是触发“释放刷新”的距离。创建headerView之前为预留高度，测量后以实际高度为准*/
 	private int headerHeight;
+	/**上次刷新时间，headerView创建后设置给它*/
+	private long refreshTime = -1;
+	/**共享的LoadingLayout复用池，为null时每个实例自己创建*/
+	private LoadingLayoutPool loadingLayoutPool;
+	/**是否使用直接绘制的FlatLoadingLayout作为headerView和footerView*/
+	private boolean flatLoadingLayoutEnabled = false;
+	/**headerView和footerView的动画当前是否处于运行状态，滚出可见区域或窗口不可见时暂停*/
+	private boolean headerIndicatorVisible = false;
+	private boolean footerIndicatorVisible = false;
 	
 	/**记录当处于刷新状态时，用户继续下拉的次数*/
 	private int pullWithRefreshingCount = 0;
@@ -93,6 +188,49 @@ public class PullToRefreshView extends RelativeLayout {
 	
 	/**进入上拉或下拉状态回调接口*/
 	private OnDraggingListener onDraggingListener;
+
+	/**异步刷新和加载更多回调接口，任务在asyncExecutor中执行，结束后自动结束刷新状态*/
+	private OnAsyncRefreshListener<?> asyncRefreshListener;
+	private OnAsyncLoadMoreListener<?> asyncLoadMoreListener;
+	/**执行异步任务的Executor，为null时使用默认的后台线程池*/
+	private Executor asyncExecutor;
+	/**异步任务的超时时间，单位毫秒*/
+	private long asyncTimeout = AsyncOperation.DEFAULT_TIMEOUT;
+	/**正在执行的异步刷新和加载更多*/
+	private AsyncHandle refreshOperation;
+	private AsyncHandle loadMoreOperation;
+
+	/**正在后台比较的刷新数据，比较完成后才结束刷新状态*/
+	private AsyncOperation<ListDiffer.Result> refreshDiffOperation;
+
+	/**刷新过程中触发的加载更多，推迟到刷新结束后执行*/
+	private boolean loadMoreDeferred = false;
+
+	/**预判刷新的阈值，下拉超过headerView高度的该比例时提前开始刷新，小于等于0时关闭*/
+	private float speculativeRefreshThreshold = 0;
+	private OnSpeculativeRefreshListener speculativeRefreshListener;
+	/**预判刷新时退回到阈值的该比例以下才取消预判，避免在阈值附近抖动时反复回调*/
+	private static final float SPECULATIVE_CANCEL_RATIO = 0.8f;
+	/**已经提前开始刷新，等待用户释放确认*/
+	private boolean speculating = false;
+	/**提前开始了异步刷新任务，确认时不再重新开始。同一次拖动中退回阈值以下时任务继续执行，再次超过阈值时直接沿用*/
+	private boolean speculativeAsyncStarted = false;
+	/**提前开始的异步刷新在确认之前就结束了，确认时再结束刷新状态*/
+	private Runnable deferredRefreshCompletion;
+	/**上一次判断预判刷新时的下拉距离，只在继续下拉时开始预判*/
+	private int lastSpeculativeDistance = 0;
+	/**合并共用同一数据源的多个PullToRefreshView的异步任务，为null时各自执行*/
+	private RefreshCoordinator refreshCoordinator;
+	private String dataSourceKey;
+
+	private static final OnPullProgressListener[] NO_PULL_PROGRESS_LISTENERS = new OnPullProgressListener[0];
+	/**拉动进度监听，增删时整体替换数组（写时复制），分发时按下标遍历，不创建迭代器*/
+	private OnPullProgressListener[] pullProgressListeners = NO_PULL_PROGRESS_LISTENERS;
+	/**上次分发时的scrollY和状态，没有变化时不再分发*/
+	private int lastProgressScrollY = 0;
+	private int lastProgressState = PULL_TO_REFRESH;
+	/**是否正在执行帧回调，期间的滚动在本帧末尾统一分发*/
+	private boolean inFrame = false;
 	
 	private int headerBackgroundColor = -1;
 	private int headerBackgroundResource = -1;
@@ -120,15 +258,58 @@ public class PullToRefreshView extends RelativeLayout {
 	 */
 	private void init(Context context, AttributeSet attrs) {
 
-		scroller = new Scroller(context);
+		frameScheduler = FrameScheduler.create(new FrameScheduler.Callback() {
 
-		touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+			@Override
+			public void doFrame(long frameTimeNanos) {
+				inFrame = true;
+				if (pullEventPending) {
+					pullEventPending = false;
+					if (isBeingDragged) {
+						pullEvent();
+					}
+				}
+				if (springAnimator.isRunning()) {
+					boolean running = springAnimator.step(frameTimeNanos);
+					int y = springAnimator.getCurrentPosition();
+					if (y * springSide < 0) {
+						/*不越过0进入另一侧，避免拉出footerView（可能还没有创建）*/
+						springAnimator.cancel();
+						running = false;
+						y = 0;
+					}
+					scrollTo(0, y);
+					if(null != onDraggingListener){
+						onDraggingListener.onPullBack(y);
+					}
+					if (running) {
+						frameScheduler.schedule();
+					}
+				}
+				inFrame = false;
+				dispatchPullProgress();
+			}
+		});
+
+		final ViewConfiguration configuration = ViewConfiguration.get(context);
+		touchSlop = configuration.getScaledTouchSlop();
+		maximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+		flingToRefreshVelocity = DEFAULT_FLING_TO_REFRESH_VELOCITY_DIP * getResources().getDisplayMetrics().density;
+		prefetchPixelThreshold = Math.round(DEFAULT_PREFETCH_DISTANCE_DIP * getResources().getDisplayMetrics().density);
+		edgeTracker.setScrollCallback(new Runnable() {
+
+			@Override
+			public void run() {
+				checkLoadMorePrefetch();
+			}
+		});
 
 		this.context = context;
 
 		this.initAttr(attrs);
 		
-		this.addLoadingView();
+		/*headerView和footerView延迟到第一次拉动或强制刷新时创建，先按预留高度布局*/
+		headerHeight = getResources().getDimensionPixelSize(R.dimen.pull_to_refresh_header_height);
 	}
 
 	/**
@@ -209,123 +390,309 @@ public class PullToRefreshView extends RelativeLayout {
 	}
 	
 	/**
-	 * @方法描述: 根据当前模式设置，加载头部和底部布局	
+	 * @方法描述: 根据当前模式设置，加载头部和底部布局。
+	 * 头部和底部布局默认在第一次拉动或强制刷新时才创建，调用此方法可以提前创建
 	 * @作者:zhangshuo
 	 */
 	public void addLoadingView() {
-
-		String pullDownLabel = context
-				.getString(R.string.pull_to_refresh_pull_down_label);
-		String refreshingDownLabel = context
-				.getString(R.string.pull_to_refresh_refreshing_down_label);
-		String releaseDownLabel = context
-				.getString(R.string.pull_to_refresh_release_down_label);
-		String pullUpLabel = context
-				.getString(R.string.pull_to_refresh_pull_up_label);
-		String refreshingUpLabel = context
-				.getString(R.string.pull_to_refresh_refreshing_up_label);
-		String releaseUpLabel = context
-				.getString(R.string.pull_to_refresh_release_up_label);
-		
-		/*加载头部和底部View*/
 		if (mode == MODE_PULL_DOWN_TO_REFRESH || mode == MODE_BOTH) {
-			headerLayout = new LoadingLayout(context, MODE_PULL_DOWN_TO_REFRESH,
-					true, releaseDownLabel, pullDownLabel,
-					refreshingDownLabel);
-			addView(headerLayout, 0, new LinearLayout.LayoutParams(
-					ViewGroup.LayoutParams.MATCH_PARENT,
-					ViewGroup.LayoutParams.WRAP_CONTENT));
-			measureView(headerLayout);
-			headerHeight = headerLayout.getMeasuredHeight();
+			ensureHeaderLayout();
 		}
 		if (mode == MODE_PULL_UP_TO_REFRESH || mode == MODE_BOTH) {
-			footerLayout = new LoadingLayout(context, MODE_PULL_UP_TO_REFRESH,
-					false, releaseUpLabel, pullUpLabel, refreshingUpLabel);
-			RelativeLayout.LayoutParams lp2 = new RelativeLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);  
-		    lp2.addRule(RelativeLayout.ALIGN_PARENT_BOTTOM);   
-		    addView(footerLayout, lp2);  
-			measureView(footerLayout);
-			headerHeight = footerLayout.getMeasuredHeight();
+			ensureFooterLayout();
 		}
+	}
 
-		/*隐藏头部和底部View*/
-		switch (mode) {
-		case MODE_BOTH:
-			index = 2;
-			setPadding(0, -headerHeight, 0, -headerHeight);
-			break;
-		case MODE_PULL_UP_TO_REFRESH:
-			index = 1;
-			setPadding(0, 0, 0, -headerHeight);
-			break;
-		case MODE_PULL_DOWN_TO_REFRESH:
-		default:
-			index = 1;
-			setPadding(0, -headerHeight, 0, 0);
-			break;
+	/**
+	 * @方法描述: 创建headerView（如果还没有创建）
+	 * @return
+	 */
+	private ILoadingLayout ensureHeaderLayout() {
+		if (null == headerLayout) {
+			headerLayout = obtainLoadingLayout(MODE_PULL_DOWN_TO_REFRESH, true,
+					context.getString(R.string.pull_to_refresh_release_down_label),
+					context.getString(R.string.pull_to_refresh_pull_down_label),
+					context.getString(R.string.pull_to_refresh_refreshing_down_label));
+			if (headerBackgroundResource != -1) {
+				((View) headerLayout).setBackgroundResource(headerBackgroundResource);
+			} else if (headerBackgroundColor != -1) {
+				((View) headerLayout).setBackgroundColor(headerBackgroundColor);
+			}
+			if (refreshTime > 0) {
+				headerLayout.setRefreshTime(refreshTime);
+			}
+			if (isRefreshing()) {
+				headerLayout.refreshing();
+			}
+			attachLoadingLayout(headerLayout, 0);
+			/*复用的LoadingLayout可能处于暂停状态，先统一暂停再按可见性恢复*/
+			headerLayout.pauseIndicator();
+			headerIndicatorVisible = false;
+			updateIndicatorVisibility();
 		}
+		return headerLayout;
+	}
 
+	/**
+	 * @方法描述: 创建footerView（如果还没有创建）
+	 * @return
+	 */
+	private ILoadingLayout ensureFooterLayout() {
+		if (null == footerLayout) {
+			footerLayout = obtainLoadingLayout(MODE_PULL_UP_TO_REFRESH, false,
+					context.getString(R.string.pull_to_refresh_release_up_label),
+					context.getString(R.string.pull_to_refresh_pull_up_label),
+					context.getString(R.string.pull_to_refresh_refreshing_up_label));
+			if (footerBackgroundResource != -1) {
+				((View) footerLayout).setBackgroundResource(footerBackgroundResource);
+			} else if (footerBackgroundColor != -1) {
+				((View) footerLayout).setBackgroundColor(footerBackgroundColor);
+			}
+			if (isLoadingMore()) {
+				footerLayout.refreshing();
+			}
+			attachLoadingLayout(footerLayout, -1);
+			footerLayout.pauseIndicator();
+			footerIndicatorVisible = false;
+			updateIndicatorVisibility();
+		}
+		return footerLayout;
+	}
+
+	/**
+	 * @方法描述: 创建LoadingLayout，启用了FlatLoadingLayout时创建FlatLoadingLayout，设置了复用池时从池中获取
+	 */
+	private ILoadingLayout obtainLoadingLayout(int mode, boolean showUpdateTime,
+			String releaseLabel, String pullLabel, String refreshingLabel) {
+		if (flatLoadingLayoutEnabled) {
+			return new FlatLoadingLayout(context, mode, showUpdateTime, releaseLabel, pullLabel, refreshingLabel);
+		}
+		if (null != loadingLayoutPool) {
+			final LoadingLayout loadingLayout = loadingLayoutPool.acquire(context, mode, showUpdateTime,
+					releaseLabel, pullLabel, refreshingLabel);
+			/*清除上一个使用者设置的背景*/
+			loadingLayout.setBackgroundResource(0);
+			return loadingLayout;
+		}
+		return new LoadingLayout(context, mode, showUpdateTime, releaseLabel, pullLabel, refreshingLabel);
 	}
 
 	/**
-	 * 在头部和底部View添加完成后，重新布局，以避免在隐藏headerView和footerView时会把一部分内容（contentView）隐藏
+	 * @方法描述: 把headerView和footerView移除并归还到复用池，下次attach或拉动时重新获取
+	 */
+	private void releaseLoadingLayouts() {
+		if (null != headerLayout) {
+			removeViewInLayout((View) headerLayout);
+			if (headerLayout instanceof LoadingLayout) {
+				loadingLayoutPool.release((LoadingLayout) headerLayout);
+			}
+			headerLayout = null;
+		}
+		if (null != footerLayout) {
+			removeViewInLayout((View) footerLayout);
+			if (footerLayout instanceof LoadingLayout) {
+				loadingLayoutPool.release((LoadingLayout) footerLayout);
+			}
+			footerLayout = null;
+		}
+	}
+
+	/**
+	 * 设置共享的LoadingLayout复用池，需要在第一次拉动之前设置。
+	 * 设置后headerView和footerView在detach时归还到池中；池中有通过preInflate()提前创建好的就直接使用，
+	 * 否则在主线程中创建
+	 * @param pool
+	 */
+	public void setLoadingLayoutPool(LoadingLayoutPool pool) {
+		this.loadingLayoutPool = pool;
+	}
+
+	public LoadingLayoutPool getLoadingLayoutPool() {
+		return loadingLayoutPool;
+	}
+
+	/**
+	 * 设置是否使用FlatLoadingLayout作为headerView和footerView，需要在第一次拉动之前设置。
+	 * FlatLoadingLayout是单个View，直接在Canvas上绘制，状态切换时不会重新布局；
+	 * 启用后不使用LoadingLayout复用池
+	 * @param enabled
+	 */
+	public void setFlatLoadingLayoutEnabled(boolean enabled) {
+		this.flatLoadingLayoutEnabled = enabled;
+	}
+
+	public boolean isFlatLoadingLayoutEnabled() {
+		return flatLoadingLayoutEnabled;
+	}
+
+	/**
+	 * @方法描述: 根据contentView是否处于边界，创建即将拉出的headerView或footerView
+	 */
+	private void ensureLoadingLayoutsForPull() {
+		if ((mode == MODE_PULL_DOWN_TO_REFRESH || mode == MODE_BOTH) && isReadyForPullDown()) {
+			ensureHeaderLayout();
+		}
+		if ((mode == MODE_PULL_UP_TO_REFRESH || mode == MODE_BOTH) && isReadyForPullUp()) {
+			ensureFooterLayout();
+		}
+	}
+
+	/**
+	 * @方法描述: 添加headerView或footerView。它们位于可见区域之外，
+	 * 所以直接测量和摆放这一个子View，不请求整个控件重新布局
+	 * @param loadingLayout
+	 * @param index
+	 */
+	private void attachLoadingLayout(ILoadingLayout layout, int index) {
+		final View loadingLayout = (View) layout;
+		addViewInLayout(loadingLayout, index, new LayoutParams(
+				ViewGroup.LayoutParams.MATCH_PARENT,
+				ViewGroup.LayoutParams.WRAP_CONTENT), true);
+		if (getWidth() > 0) {
+			final int left = getPaddingLeft();
+			final int right = getWidth() - getPaddingRight();
+			loadingLayout.measure(MeasureSpec.makeMeasureSpec(right - left, MeasureSpec.EXACTLY),
+					MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+			if (layout == headerLayout) {
+				final int contentTop = getPaddingTop();
+				loadingLayout.layout(left, contentTop - loadingLayout.getMeasuredHeight(), right, contentTop);
+			} else {
+				final int contentBottom = getHeight() - getPaddingBottom();
+				loadingLayout.layout(left, contentBottom, right, contentBottom + loadingLayout.getMeasuredHeight());
+			}
+			updateHeaderHeight();
+		}
+		loadingLayout.invalidate();
+	}
+
+	/**
+	 * 控件由三个槽位组成：headerView、contentView和footerView。
+	 * 只测量一遍contentView，控件的大小即contentView的大小加上padding，
+	 * headerView和footerView与控件同宽，高度按内容
 	 */
 	@Override
-	protected void onLayout(boolean changed, int l, int t, int r, int b) {
-		// TODO Auto-generated method stub
-		super.onLayout(changed, l, t, r, b);
-		View contentView = null;
-		RelativeLayout.LayoutParams lp1 = null; 
-		switch (mode) {
-		case MODE_BOTH:
-			contentView = this.getChildAt(index);
-			lp1 = (LayoutParams) contentView.getLayoutParams();
-			lp1.setMargins(0, headerHeight, 0, headerHeight);
-			break;
-		case MODE_PULL_UP_TO_REFRESH:
-			contentView = this.getChildAt(index);
-			lp1 = (LayoutParams) contentView.getLayoutParams();
-			lp1.setMargins(0, 0, 0, headerHeight);
-			break;
-		case MODE_PULL_DOWN_TO_REFRESH:
-		default:
-			contentView = this.getChildAt(index);
-			lp1 = (LayoutParams) contentView.getLayoutParams();
-			lp1.setMargins(0, headerHeight, 0, 0);
-			break;
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		final View contentView = getContentView();
+		final int verticalPadding = getPaddingTop() + getPaddingBottom();
+		final int horizontalPadding = getPaddingLeft() + getPaddingRight();
+
+		int contentWidth = 0;
+		int contentHeight = 0;
+		if (null != contentView && contentView.getVisibility() != GONE) {
+			final MarginLayoutParams lp = (MarginLayoutParams) contentView.getLayoutParams();
+			contentView.measure(
+					getChildMeasureSpec(widthMeasureSpec, horizontalPadding + lp.leftMargin + lp.rightMargin, lp.width),
+					getChildMeasureSpec(heightMeasureSpec, verticalPadding + lp.topMargin + lp.bottomMargin, lp.height));
+			contentWidth = contentView.getMeasuredWidth() + lp.leftMargin + lp.rightMargin;
+			contentHeight = contentView.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
 		}
+
+		final int width = resolveSize(Math.max(contentWidth + horizontalPadding, getSuggestedMinimumWidth()), widthMeasureSpec);
+		final int height = resolveSize(Math.max(contentHeight + verticalPadding, getSuggestedMinimumHeight()), heightMeasureSpec);
+		setMeasuredDimension(width, height);
+
+		final int loadingWidthSpec = MeasureSpec.makeMeasureSpec(Math.max(0, width - horizontalPadding), MeasureSpec.EXACTLY);
+		final int loadingHeightSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+		final View headerView = (View) headerLayout;
+		final View footerView = (View) footerLayout;
+		if (null != headerView && headerView.getVisibility() != GONE) {
+			headerView.measure(loadingWidthSpec, loadingHeightSpec);
+		}
+		if (null != footerView && footerView.getVisibility() != GONE) {
+			footerView.measure(loadingWidthSpec, loadingHeightSpec);
+		}
+		updateHeaderHeight();
 	}
-	
-	private void measureView(View child) {
-		ViewGroup.LayoutParams p = child.getLayoutParams();
-		if (p == null) {
-			p = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
-					ViewGroup.LayoutParams.WRAP_CONTENT);
-		}
-
-		int childWidthSpec = ViewGroup.getChildMeasureSpec(0, 0 + 0, p.width);
-		int lpHeight = p.height;
-		int childHeightSpec;
-		if (lpHeight > 0) {
-			childHeightSpec = MeasureSpec.makeMeasureSpec(lpHeight,
-					MeasureSpec.EXACTLY);
-		} else {
-			childHeightSpec = MeasureSpec.makeMeasureSpec(0,
-					MeasureSpec.UNSPECIFIED);
+
+	/**
+	 * @方法描述: 以测量得到的高度更新headerHeight（字体放大、显示更新时间时会高于预留高度），
+	 * 没有headerView时以footerView为准。处于或正在回到刷新、加载更多的静止位置时同时调整，避免被裁剪
+	 */
+	private void updateHeaderHeight() {
+		View measured = (View) headerLayout;
+		if (null == measured || measured.getVisibility() == GONE) {
+			measured = (View) footerLayout;
+		}
+		if (null == measured || measured.getVisibility() == GONE || measured.getMeasuredHeight() <= 0) {
+			return;
+		}
+		final int newHeight = measured.getMeasuredHeight();
+		if (newHeight == headerHeight) {
+			return;
+		}
+		final int oldHeight = headerHeight;
+		headerHeight = newHeight;
+		if (isBeingDragged) {
+			return;
+		}
+		if (!isAnimFinished()) {
+			/*正在向原来的静止位置运动时改为新的位置*/
+			final int target = springAnimator.getTargetPosition();
+			if (target == -oldHeight || target == oldHeight) {
+				smoothScrollTo(target < 0 ? -newHeight : newHeight, springAnimator.getVelocity());
+			}
+		} else if (isRefreshing() && getScrollY() == -oldHeight) {
+			scrollTo(-newHeight);
+		} else if (isLoadingMore() && getScrollY() == oldHeight) {
+			scrollTo(newHeight);
 		}
-		child.measure(childWidthSpec, childHeightSpec);
 	}
 
+	/**
+	 * contentView填满padding以内的区域，headerView紧贴在其上方，footerView紧贴在其下方，
+	 * 两者都在控件的可见区域之外，通过scrollY拉出
+	 */
+	@Override
+	protected void onLayout(boolean changed, int l, int t, int r, int b) {
+		final int left = getPaddingLeft();
+		final int right = r - l - getPaddingRight();
+		final int contentTop = getPaddingTop();
+		final int contentBottom = b - t - getPaddingBottom();
+
+		final View contentView = getContentView();
+		if (null != contentView && contentView.getVisibility() != GONE) {
+			final MarginLayoutParams lp = (MarginLayoutParams) contentView.getLayoutParams();
+			final int childLeft = left + lp.leftMargin;
+			final int childTop = contentTop + lp.topMargin;
+			contentView.layout(childLeft, childTop,
+					childLeft + contentView.getMeasuredWidth(), childTop + contentView.getMeasuredHeight());
+		}
+		final View headerView = (View) headerLayout;
+		final View footerView = (View) footerLayout;
+		if (null != headerView && headerView.getVisibility() != GONE) {
+			headerView.layout(left, contentTop - headerView.getMeasuredHeight(), right, contentTop);
+		}
+		if (null != footerView && footerView.getVisibility() != GONE) {
+			footerView.layout(left, contentBottom, right, contentBottom + footerView.getMeasuredHeight());
+		}
+	}
+
+	/**
+	 * @方法描述: 获取contentView，即headerView和footerView之外的子View，还没有添加时返回null
+	 * @return
+	 */
+	private View getContentView() {
+		final int count = getChildCount();
+		for (int i = 0; i < count; i++) {
+			final View child = getChildAt(i);
+			if (child != headerLayout && child != footerLayout) {
+				return child;
+			}
+		}
+		return null;
+	}
+	
 	@Override
 	public final boolean onInterceptTouchEvent(MotionEvent event) {
 
 //		Log.e("Intercept", "start");
 
-		if(!isAnimFinished()){
+		if (!isPullToRefreshEnabled) {
 			return false;
 		}
-		
-		if (!isPullToRefreshEnabled) {
+
+		if (nestedScrollInProgress) {
+			/*子View通过嵌套滑动报告越界距离，不再拦截*/
 			return false;
 		}
 
@@ -351,7 +718,12 @@ public class PullToRefreshView extends RelativeLayout {
 			if(null != this.onDraggingListener){
 				this.onDraggingListener.onPullTouch();
 			}
+			if (!isAnimFinished() && catchSnapBack(event)) {
+				/*回弹动画被打断，直接从当前位置开始拖动*/
+				return true;
+			}
 			if (isReadyForPull()) {
+				ensureLoadingLayoutsForPull();
 				lastMotionY = initialMotionY = event.getY();
 				lastMotionX = event.getX();
 				isBeingDragged = false;
@@ -373,12 +745,15 @@ public class PullToRefreshView extends RelativeLayout {
 						lastMotionY = y;
 						isBeingDragged = true;
 						currentMode = MODE_PULL_DOWN_TO_REFRESH;
+						/*按下时contentView可能还没有到达边界*/
+						ensureHeaderLayout();
 					} else if ((mode == MODE_PULL_UP_TO_REFRESH || mode == MODE_BOTH)
 							&& dy <= 0.0001f && isReadyForPullUp() && getScrollY() == 0) {
 						/*可以上拉更多*/
 						lastMotionY = y;
 						isBeingDragged = true;
 						currentMode = MODE_PULL_UP_TO_REFRESH;
+						ensureFooterLayout();
 					}else if((isRefreshing() && getScrollY() < 0)|| (isLoadingMore() && getScrollY() > 0)){
 						/*当前headerView或footerView处于显示状态，开启跟随手指滑动模式*/
 						lastMotionY = y;
@@ -413,7 +788,12 @@ public class PullToRefreshView extends RelativeLayout {
 		
 		case MotionEvent.ACTION_DOWN: {
 //			Log.e("Touch", "down");
+			if (isBeingDragged) {
+				/*已在onInterceptTouchEvent中接住了回弹动画*/
+				return true;
+			}
 			if (isReadyForPull()) {
+				ensureLoadingLayoutsForPull();
 				lastMotionY = initialMotionY = event.getY();
 				return true;
 			}
@@ -422,8 +802,22 @@ public class PullToRefreshView extends RelativeLayout {
 		case MotionEvent.ACTION_MOVE: {
 //			Log.e("Touch", "move");
 			if (isBeingDragged) {
+				if (snapBackCaught) {
+					if (Math.abs(event.getY() - snapBackDownY) <= touchSlop) {
+						return true;
+					}
+					snapBackCaught = false;
+					/*从当前位置开始跟随手指，不把touchSlop内的移动计入拉动距离*/
+					initialMotionY += event.getY() - snapBackDownY;
+				}
+				/*getY()即本批次（含历史采样）中最新的位置，同一帧内只按最新位置滑动一次*/
 				lastMotionY = event.getY();
-				this.pullEvent();
+				if (frameCoalescingEnabled) {
+					pullEventPending = true;
+					frameScheduler.schedule();
+				} else {
+					this.pullEvent();
+				}
 				return true;
 			}
 			break;
@@ -431,45 +825,20 @@ public class PullToRefreshView extends RelativeLayout {
 		case MotionEvent.ACTION_CANCEL:
 		case MotionEvent.ACTION_UP: {
 //			Log.e("Touch", "up");
-			if (isBeingDragged) {
+			if (isBeingDragged && snapBackCaught) {
+				/*只是点击，继续被接住的回弹动画*/
+				snapBackCaught = false;
 				isBeingDragged = false;
-
-				if(isRefreshing() && pullWithRefreshingCount == 0){
-					pullWithRefreshingCount = 1;
-				}
-				if(isLoadingMore() && pullWithLoadingMoreCount == 0){
-					pullWithLoadingMoreCount = 1;
-				}
-				
-				switch (currentMode) {
-				case MODE_PULL_TO_SCROLL_HEADER_OR_FOOTER:
-					/*将headerView和footerView隐藏*/
-					smoothScrollTo(0);
-					break;
-				case MODE_PULL_UP_TO_REFRESH:
-					/*判断是否激活加载更多*/
-					if (footerState == RELEASE_TO_REFRESH && null != onLoadMoreListener) {
-						setLoadingMoreInternal(true);
-						onLoadMoreListener.onLoadMore();
-					} else {
-						smoothScrollTo(0);
-					}
-					break;
-				case MODE_PULL_DOWN_TO_REFRESH:
-					/*判断是否激活刷新*/
-					if (headerState == RELEASE_TO_REFRESH && null != onRefreshListener) {
-						setRefreshingInternal(true);
-						onRefreshListener.onRefresh();
-					} else {
-						smoothScrollTo(0);
-					}
-					break;
-				}
-				
+				smoothScrollTo(snapBackTarget);
 				if(this.onDraggingListener != null){
 					this.onDraggingListener.onPullRelease();
 				}
-				
+				return true;
+			}
+			if (isBeingDragged) {
+				/*释放前先处理尚未执行的拖动，保证状态判断基于最后的位置*/
+				flushPendingPullEvent();
+				releasePull(computeReleaseVelocity());
 				return true;
 			}
 			break;
@@ -479,6 +848,684 @@ public class PullToRefreshView extends RelativeLayout {
 		return false;
 	}
 	
+	/**
+	 * @方法描述:	拖动结束，根据拉出的距离和释放速度决定刷新、加载更多或回弹
+	 * @param velocityY 释放时的速度，单位px/s，向下为正
+	 */
+	private void releasePull(float velocityY) {
+		isBeingDragged = false;
+		snapBackCaught = false;
+		/*回弹动画延续手指释放时的速度，滑动距离为手指移动距离的1/FRICTION，方向相反*/
+		final float releaseVelocity = -velocityY / FRICTION;
+
+		if(isRefreshing() && pullWithRefreshingCount == 0){
+			pullWithRefreshingCount = 1;
+		}
+		if(isLoadingMore() && pullWithLoadingMoreCount == 0){
+			pullWithLoadingMoreCount = 1;
+		}
+		
+		switch (currentMode) {
+		case MODE_PULL_TO_SCROLL_HEADER_OR_FOOTER:
+			/*将headerView和footerView隐藏*/
+			smoothScrollTo(0, releaseVelocity);
+			break;
+		case MODE_PULL_UP_TO_REFRESH:
+			/*判断是否激活加载更多*/
+			if (isReleaseToRefresh(footerState, -velocityY)
+					&& (null != onLoadMoreListener || null != asyncLoadMoreListener)) {
+				setLoadingMoreInternal(false);
+				smoothScrollTo(headerHeight, releaseVelocity);
+				if (!prefetchInFlight) {
+					/*已经提前开始加载时只显示footerView，等待其结束*/
+					dispatchLoadMore();
+				}
+			} else {
+				smoothScrollTo(0, releaseVelocity);
+			}
+			break;
+		case MODE_PULL_DOWN_TO_REFRESH:
+			/*判断是否激活刷新*/
+			if (isReleaseToRefresh(headerState, velocityY)
+					&& (null != onRefreshListener || null != asyncRefreshListener)) {
+				setRefreshingInternal(false);
+				smoothScrollTo(-headerHeight, releaseVelocity);
+				dispatchRefresh();
+			} else {
+				smoothScrollTo(0, releaseVelocity);
+			}
+			break;
+		}
+		
+		/*没有进入刷新状态，取消预判*/
+		if (speculating || speculativeAsyncStarted) {
+			cancelSpeculativeRefresh();
+		}
+		lastSpeculativeDistance = 0;
+
+		if(this.onDraggingListener != null){
+			this.onDraggingListener.onPullRelease();
+		}
+	}
+
+	/**
+	 * @方法描述:	回调刷新接口，设置了异步刷新接口时开始执行其任务，已经提前开始时不再重复执行
+	 */
+	private void dispatchRefresh() {
+		speculating = false;
+		cancelLoadMoreForRefresh();
+		if (null != onRefreshListener) {
+			onRefreshListener.onRefresh();
+		}
+		if (null != asyncRefreshListener) {
+			if (speculativeAsyncStarted) {
+				speculativeAsyncStarted = false;
+				if (null != deferredRefreshCompletion) {
+					final Runnable completion = deferredRefreshCompletion;
+					deferredRefreshCompletion = null;
+					completion.run();
+				}
+			} else {
+				startAsyncRefresh(asyncRefreshListener);
+			}
+		}
+	}
+
+	/**
+	 * @方法描述:	下拉过程中判断是否提前开始或取消刷新
+	 * @param newHeight 拉出的距离，下拉为负
+	 */
+	private void updateSpeculativeRefresh(int newHeight) {
+		if (speculativeRefreshThreshold <= 0 || currentMode != MODE_PULL_DOWN_TO_REFRESH || isRefreshing()) {
+			return;
+		}
+		if (null == speculativeRefreshListener && null == asyncRefreshListener) {
+			return;
+		}
+		final int distance = -newHeight;
+		final float threshold = headerHeight * speculativeRefreshThreshold;
+		if (!speculating) {
+			if (distance >= threshold && distance > lastSpeculativeDistance) {
+				startSpeculativeRefresh();
+			}
+		} else if (distance < threshold * SPECULATIVE_CANCEL_RATIO) {
+			/*退回阈值以下：通知取消预判，异步任务保留到释放时再决定*/
+			speculating = false;
+			if (null != speculativeRefreshListener) {
+				speculativeRefreshListener.onCancelPrepareRefresh();
+			}
+		}
+		lastSpeculativeDistance = distance;
+	}
+
+	private void startSpeculativeRefresh() {
+		speculating = true;
+		if (null != speculativeRefreshListener) {
+			speculativeRefreshListener.onPrepareRefresh();
+		}
+		if (null != asyncRefreshListener && !speculativeAsyncStarted) {
+			/*同一次拖动中已经开始的任务直接沿用，不重复请求*/
+			speculativeAsyncStarted = true;
+			startAsyncRefresh(asyncRefreshListener);
+		}
+	}
+
+	/**
+	 * @方法描述:	释放时未触发刷新或从窗口detach时取消提前开始的刷新，
+	 * 放弃提前开始的异步任务及其结果，并以CancellationException回调onRefreshFailure()
+	 */
+	private void cancelSpeculativeRefresh() {
+		if (speculating) {
+			speculating = false;
+			if (null != speculativeRefreshListener) {
+				speculativeRefreshListener.onCancelPrepareRefresh();
+			}
+		}
+		if (speculativeAsyncStarted) {
+			speculativeAsyncStarted = false;
+			final boolean pending = null != refreshOperation || null != deferredRefreshCompletion;
+			deferredRefreshCompletion = null;
+			if (null != refreshOperation) {
+				refreshOperation.abandon();
+				refreshOperation = null;
+			}
+			if (pending && null != asyncRefreshListener) {
+				asyncRefreshListener.onRefreshFailure(new CancellationException());
+			}
+		}
+	}
+
+	/**
+	 * @方法描述:	结束异步刷新，提前开始的刷新还没有被确认时推迟到确认时执行
+	 */
+	private void finishAsyncRefresh(Runnable completion) {
+		if (speculativeAsyncStarted) {
+			deferredRefreshCompletion = completion;
+		} else {
+			completion.run();
+		}
+	}
+
+	/**
+	 * @方法描述:	刷新优先于加载更多：开始刷新时取消正在执行和推迟的加载更多，
+	 * 异步任务以CancellationException回调，同步接口结束加载更多状态并回调OnCancellableLoadMoreListener.onLoadMoreCancelled()
+	 */
+	private void cancelLoadMoreForRefresh() {
+		loadMoreDeferred = false;
+		final boolean syncInFlight = null != onLoadMoreListener && (isLoadingMore() || prefetchInFlight);
+		if (null != loadMoreOperation) {
+			loadMoreOperation.cancel();
+		}
+		if (syncInFlight) {
+			if (isLoadingMore() || prefetchInFlight) {
+				onLoadMoreComplete();
+			}
+			if (onLoadMoreListener instanceof OnCancellableLoadMoreListener) {
+				((OnCancellableLoadMoreListener) onLoadMoreListener).onLoadMoreCancelled();
+			}
+		}
+	}
+
+	/**
+	 * @方法描述:	回调加载更多接口，设置了异步加载更多接口时开始执行其任务。
+	 * 正在刷新时推迟到刷新结束后执行
+	 */
+	private void dispatchLoadMore() {
+		if (isRefreshing()) {
+			loadMoreDeferred = true;
+			return;
+		}
+		if (null != onLoadMoreListener) {
+			onLoadMoreListener.onLoadMore();
+		}
+		if (null != asyncLoadMoreListener) {
+			startAsyncLoadMore(asyncLoadMoreListener);
+		}
+	}
+
+	private <T> void startAsyncRefresh(final OnAsyncRefreshListener<T> listener) {
+		if (null != refreshOperation) {
+			refreshOperation.abandon();
+			refreshOperation = null;
+		}
+		final Callable<T> task = listener.onRefresh();
+		if (null == task) {
+			return;
+		}
+		final AsyncOperation.Callback<T> callback = new AsyncOperation.Callback<T>() {
+
+			@Override
+			public void onSuccess(final T result) {
+				refreshOperation = null;
+				finishAsyncRefresh(new Runnable() {
+
+					@Override
+					public void run() {
+						/*先回调结果，使用者可以在其中调用onRefreshComplete(int)保持列表位置*/
+						listener.onRefreshSuccess(result);
+						if (null == refreshDiffOperation) {
+							onRefreshComplete();
+						}
+					}
+				});
+			}
+
+			@Override
+			public void onFailure(final Throwable error) {
+				refreshOperation = null;
+				finishAsyncRefresh(new Runnable() {
+
+					@Override
+					public void run() {
+						onRefreshComplete();
+						listener.onRefreshFailure(error);
+					}
+				});
+			}
+		};
+		refreshOperation = startAsyncOperation(task, callback, false);
+	}
+
+	private <T> void startAsyncLoadMore(final OnAsyncLoadMoreListener<T> listener) {
+		if (null != loadMoreOperation) {
+			loadMoreOperation.abandon();
+			loadMoreOperation = null;
+		}
+		final Callable<T> task = listener.onLoadMore();
+		if (null == task) {
+			return;
+		}
+		final AsyncOperation.Callback<T> callback = new AsyncOperation.Callback<T>() {
+
+			@Override
+			public void onSuccess(T result) {
+				loadMoreOperation = null;
+				onLoadMoreComplete();
+				listener.onLoadMoreSuccess(result);
+			}
+
+			@Override
+			public void onFailure(Throwable error) {
+				loadMoreOperation = null;
+				onLoadMoreComplete();
+				listener.onLoadMoreFailure(error);
+			}
+		};
+		loadMoreOperation = startAsyncOperation(task, callback, true);
+	}
+
+	/**
+	 * @方法描述: 执行异步任务，设置了RefreshCoordinator时加入同一数据源上正在执行的任务
+	 * @return 任务已经结束（如被Executor拒绝）时返回null
+	 */
+	private <T> AsyncHandle startAsyncOperation(Callable<T> task, AsyncOperation.Callback<T> callback, boolean loadMore) {
+		final AsyncHandle handle;
+		if (null != refreshCoordinator && null != dataSourceKey) {
+			handle = refreshCoordinator.join(dataSourceKey, loadMore, task, callback, getAsyncExecutor(), asyncTimeout);
+		} else {
+			final AsyncOperation<T> operation = new AsyncOperation<T>(task, callback);
+			operation.start(getAsyncExecutor(), asyncTimeout);
+			handle = operation;
+		}
+		return handle.isFinished() ? null : handle;
+	}
+
+	private Executor getAsyncExecutor() {
+		return null != asyncExecutor ? asyncExecutor : AsyncOperation.getDefaultExecutor();
+	}
+
+	/**
+	 * @方法描述:	在回弹动画执行过程中按下时，停止动画并从当前位置继续拖动，
+	 * 通过反推initialMotionY使pullEvent()计算出的位置与当前scrollY一致，避免跳动。
+	 * 不开始拖动时动画继续执行；手指没有移动超过touchSlop就抬起时，继续向原来的目标位置运动
+	 * @param event ACTION_DOWN事件
+	 * @return 是否开始拖动
+	 */
+	private boolean catchSnapBack(MotionEvent event) {
+		final int scrollY = getScrollY();
+		if (scrollY < 0) {
+			if (isRefreshing()) {
+				currentMode = MODE_PULL_TO_SCROLL_HEADER_OR_FOOTER;
+			} else if (mode == MODE_PULL_DOWN_TO_REFRESH || mode == MODE_BOTH) {
+				currentMode = MODE_PULL_DOWN_TO_REFRESH;
+				ensureHeaderLayout();
+			} else {
+				return false;
+			}
+		} else if (scrollY > 0) {
+			if (isLoadingMore()) {
+				currentMode = MODE_PULL_TO_SCROLL_HEADER_OR_FOOTER;
+			} else if (mode == MODE_PULL_UP_TO_REFRESH || mode == MODE_BOTH) {
+				currentMode = MODE_PULL_UP_TO_REFRESH;
+				ensureFooterLayout();
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+
+		/*pullEvent()中处于刷新状态且第一次继续拖动时，以headerView或footerView完全显示的位置为基准*/
+		final int base;
+		if (isRefreshing() && pullWithRefreshingCount == 0) {
+			base = -headerHeight;
+		} else if (isLoadingMore() && pullWithLoadingMoreCount == 0) {
+			base = headerHeight;
+		} else {
+			base = 0;
+		}
+		snapBackTarget = springAnimator.getTargetPosition();
+		springAnimator.cancel();
+		lastMotionX = event.getX();
+		lastMotionY = snapBackDownY = event.getY();
+		initialMotionY = lastMotionY + (scrollY - base) * FRICTION;
+		snapBackCaught = true;
+		isBeingDragged = true;
+		return true;
+	}
+
+	/*
+	 * 以下为嵌套滑动父View的实现（对应API 21 ViewParent中的同名方法）。
+	 * 项目按android-19编译，因此不加@Override，在API 21及以上由系统回调。
+	 * 支持嵌套滑动的子View会直接报告未消耗的滑动距离，不需要再拦截事件；
+	 * 不支持嵌套滑动的子View仍然使用onInterceptTouchEvent()
+	 */
+
+	public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+		if (!isPullToRefreshEnabled || (nestedScrollAxes & SCROLL_AXIS_VERTICAL) == 0) {
+			return false;
+		}
+		return !((isLoadingMore() || isRefreshing()) && disableScrollingWhileRefreshing);
+	}
+
+	public void onNestedScrollAccepted(View child, View target, int axes) {
+		nestedScrollAxes = axes;
+		nestedScrollInProgress = true;
+		nestedFlingVelocityY = 0;
+		/*回弹动画在真正拉动时才被接住，只是按下时继续执行*/
+		nestedPulled = false;
+		nestedScrollY = getScrollY();
+		isBeingDragged = false;
+		ensureLoadingLayoutsForPull();
+	}
+
+	public int getNestedScrollAxes() {
+		return nestedScrollAxes;
+	}
+
+	public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+		syncNestedScrollY();
+		/*headerView或footerView已拉出时，反方向的滑动先用于收回它们*/
+		if ((nestedScrollY < 0 && dy > 0) || (nestedScrollY > 0 && dy < 0)) {
+			final int remaining = (int) Math.ceil(Math.abs(nestedScrollY) * FRICTION);
+			final int consumedY = dy > 0 ? Math.min(dy, remaining) : Math.max(dy, -remaining);
+			nestedPull(consumedY);
+			consumed[1] = consumedY;
+		}
+	}
+
+	public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+		syncNestedScrollY();
+		if (dyUnconsumed < 0 && nestedScrollY <= 0
+				&& (mode == MODE_PULL_DOWN_TO_REFRESH || mode == MODE_BOTH || isRefreshing())) {
+			/*子View已到顶部，继续下拉*/
+			nestedPull(dyUnconsumed);
+		} else if (dyUnconsumed > 0 && nestedScrollY >= 0
+				&& (mode == MODE_PULL_UP_TO_REFRESH || mode == MODE_BOTH || isLoadingMore())) {
+			/*子View已到底部，继续上拉*/
+			nestedPull(dyUnconsumed);
+		}
+	}
+
+	public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+		if (nestedPulled && nestedScrollY != 0) {
+			/*headerView或footerView拉出时由回弹动画接管fling*/
+			nestedFlingVelocityY = -velocityY;
+			return true;
+		}
+		return false;
+	}
+
+	public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+		return false;
+	}
+
+	public void onStopNestedScroll(View target) {
+		nestedScrollAxes = 0;
+		if (!nestedScrollInProgress) {
+			return;
+		}
+		nestedScrollInProgress = false;
+		if (nestedPulled && getScrollY() != 0) {
+			releasePull(nestedFlingVelocityY);
+			return;
+		}
+		isBeingDragged = false;
+		if (!nestedPulled) {
+			/*没有拉动过，保持当前位置（及正在执行的回弹动画），只按刷新状态更新currentMode*/
+			final int scrollY = getScrollY();
+			if ((isRefreshing() && scrollY < 0) || (isLoadingMore() && scrollY > 0)) {
+				currentMode = MODE_PULL_TO_SCROLL_HEADER_OR_FOOTER;
+			}
+		}
+	}
+
+	/**
+	 * @方法描述:	还没有拉动过时，以当前位置（可能正在回弹）作为嵌套滑动的起点
+	 */
+	private void syncNestedScrollY() {
+		if (!nestedPulled) {
+			nestedScrollY = getScrollY();
+		}
+	}
+
+	/**
+	 * @方法描述:	处理子View报告的嵌套滑动距离
+	 * @param dy 子View的滑动距离，手指向上为正
+	 */
+	private void nestedPull(int dy) {
+		if (!nestedPulled) {
+			/*接住正在执行的回弹动画*/
+			nestedPulled = true;
+			springAnimator.cancel();
+		}
+		final float newScrollY = nestedScrollY + dy / FRICTION;
+		/*不越过0，避免从headerView直接拉到footerView*/
+		if ((nestedScrollY < 0 && newScrollY > 0) || (nestedScrollY > 0 && newScrollY < 0)) {
+			nestedScrollY = 0;
+		} else {
+			nestedScrollY = newScrollY;
+		}
+		final int newHeight = Math.round(nestedScrollY);
+		isBeingDragged = newHeight != 0;
+
+		if (newHeight < 0) {
+			/*子View在列表中间开始滑动时，接受嵌套滑动时还没有创建headerView*/
+			ensureHeaderLayout();
+			currentMode = isRefreshing() ? MODE_PULL_TO_SCROLL_HEADER_OR_FOOTER : MODE_PULL_DOWN_TO_REFRESH;
+			if(this.onDraggingListener != null){
+				this.onDraggingListener.onPullDown(newHeight);
+			}
+		} else if (newHeight > 0) {
+			ensureFooterLayout();
+			currentMode = isLoadingMore() ? MODE_PULL_TO_SCROLL_HEADER_OR_FOOTER : MODE_PULL_UP_TO_REFRESH;
+			if(this.onDraggingListener != null){
+				this.onDraggingListener.onPullUp(newHeight);
+			}
+		}
+		scrollTo(newHeight);
+		updatePullState(newHeight);
+	}
+
+	/**
+	 * @方法描述:	立即执行等待下一帧处理的拖动
+	 */
+	private void flushPendingPullEvent() {
+		if (pullEventPending) {
+			pullEventPending = false;
+			frameScheduler.cancel();
+			pullEvent();
+		}
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		attachedToWindow = true;
+		/*从复用池中重新获取正在显示的headerView或footerView*/
+		if (isRefreshing()) {
+			ensureHeaderLayout();
+		}
+		if (isLoadingMore()) {
+			ensureFooterLayout();
+		}
+		final View contentView = getContentView();
+		if (null != contentView) {
+			trackContent(contentView);
+		}
+		edgeTracker.startListening(getViewTreeObserver());
+	}
+
+	@Override
+	protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+		super.onScrollChanged(l, t, oldl, oldt);
+		updateIndicatorVisibility();
+		requestPullProgressDispatch();
+	}
+
+	/**
+	 * @方法描述: 滚动或状态变化后调用，合并到帧末尾分发拉动进度，同一帧内多次变化只分发一次
+	 */
+	private void requestPullProgressDispatch() {
+		if (pullProgressListeners.length > 0 && !inFrame && attachedToWindow) {
+			frameScheduler.schedule();
+		}
+	}
+
+	/**
+	 * @方法描述: 在帧末尾分发拉动进度，scrollY和状态都没有变化时不分发
+	 */
+	private void dispatchPullProgress() {
+		final OnPullProgressListener[] listeners = pullProgressListeners;
+		if (listeners.length == 0) {
+			return;
+		}
+		final int scrollY = getScrollY();
+		final int direction;
+		final int state;
+		if (scrollY < 0) {
+			direction = PULL_DIRECTION_DOWN;
+			state = headerState;
+		} else if (scrollY > 0) {
+			direction = PULL_DIRECTION_UP;
+			state = footerState;
+		} else {
+			direction = PULL_DIRECTION_NONE;
+			state = isRefreshing() ? headerState : footerState;
+		}
+		if (scrollY == lastProgressScrollY && state == lastProgressState) {
+			return;
+		}
+		lastProgressScrollY = scrollY;
+		lastProgressState = state;
+		final float progress = headerHeight > 0 ? Math.abs(scrollY) / (float) headerHeight : 0;
+		for (int i = 0; i < listeners.length; i++) {
+			listeners[i].onPullProgress(progress, direction, state);
+		}
+	}
+
+	@Override
+	protected void onWindowVisibilityChanged(int visibility) {
+		super.onWindowVisibilityChanged(visibility);
+		updateIndicatorVisibility();
+	}
+
+	/**
+	 * @方法描述: 根据scrollY和窗口可见性判断headerView和footerView是否有部分可见，
+	 * 完全不可见时暂停其进度圈动画和时间文字的更新，重新可见时恢复
+	 */
+	private void updateIndicatorVisibility() {
+		final boolean windowVisible = attachedToWindow && getWindowVisibility() == VISIBLE;
+		final int scrollY = getScrollY();
+		if (null != headerLayout) {
+			final boolean visible = windowVisible && scrollY < 0;
+			if (visible != headerIndicatorVisible) {
+				headerIndicatorVisible = visible;
+				if (visible) {
+					headerLayout.resumeIndicator();
+				} else {
+					headerLayout.pauseIndicator();
+				}
+			}
+		}
+		if (null != footerLayout) {
+			final boolean visible = windowVisible && scrollY > 0;
+			if (visible != footerIndicatorVisible) {
+				footerIndicatorVisible = visible;
+				if (visible) {
+					footerLayout.resumeIndicator();
+				} else {
+					footerLayout.pauseIndicator();
+				}
+			}
+		}
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		attachedToWindow = false;
+		updateIndicatorVisibility();
+		if (speculating || speculativeAsyncStarted) {
+			cancelSpeculativeRefresh();
+		}
+		/*中断正在执行的异步任务，以CancellationException回调并结束刷新状态*/
+		if (null != refreshOperation) {
+			refreshOperation.cancel();
+		}
+		if (null != loadMoreOperation) {
+			loadMoreOperation.cancel();
+		}
+		if (null != refreshDiffOperation) {
+			/*放弃尚未应用的比较结果，调用者的数据保持不变*/
+			onRefreshComplete();
+		}
+		edgeTracker.stopListening();
+		pullEventPending = false;
+		frameScheduler.cancel();
+		if (springAnimator.isRunning()) {
+			/*直接跳到动画的终点*/
+			springAnimator.cancel();
+			scrollTo(springAnimator.getTargetPosition());
+		}
+		super.onDetachedFromWindow();
+		if (null != loadingLayoutPool) {
+			releaseLoadingLayouts();
+		}
+	}
+
+	@Override
+	public boolean dispatchTouchEvent(MotionEvent event) {
+		/*在分发入口统一跟踪速度，每个事件（含历史采样）只记录一次*/
+		final int action = event.getAction() & MotionEvent.ACTION_MASK;
+		if (action == MotionEvent.ACTION_DOWN) {
+			if (null == velocityTracker) {
+				velocityTracker = VelocityTracker.obtain();
+			} else {
+				velocityTracker.clear();
+			}
+		}
+		if (null != velocityTracker) {
+			velocityTracker.addMovement(event);
+		}
+		final boolean handled = super.dispatchTouchEvent(event);
+		if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+			if (null != velocityTracker) {
+				velocityTracker.recycle();
+				velocityTracker = null;
+			}
+		}
+		return handled;
+	}
+
+	/**
+	 * @方法描述: 计算手指释放时的纵向速度
+	 * @return 单位px/s，向下为正
+	 */
+	private float computeReleaseVelocity() {
+		if (null == velocityTracker) {
+			return 0;
+		}
+		velocityTracker.computeCurrentVelocity(1000, maximumFlingVelocity);
+		return velocityTracker.getYVelocity();
+	}
+
+	/**
+	 * @方法描述: 释放时是否应该触发刷新（加载更多）：已拉过释放刷新的距离，
+	 * 或者拉出了一定距离且释放时向拉出方向的速度足够快
+	 * @param state headerState或footerState
+	 * @param pullVelocity 释放时向拉出方向的速度，单位px/s
+	 * @return
+	 */
+	private boolean isReleaseToRefresh(int state, float pullVelocity) {
+		if (state == RELEASE_TO_REFRESH) {
+			return true;
+		}
+		return flingToRefreshVelocity > 0 && pullVelocity >= flingToRefreshVelocity
+				&& Math.abs(getScrollY()) >= headerHeight * FLING_TO_REFRESH_MIN_DISTANCE_RATIO;
+	}
+
+	/**
+	 * 设置快速滑动触发刷新或加载更多的速度，单位px/s，小于等于0时只按拉出的距离判断
+	 * @param velocity
+	 */
+	public void setFlingToRefreshVelocity(float velocity) {
+		this.flingToRefreshVelocity = velocity;
+	}
+
+	public float getFlingToRefreshVelocity() {
+		return flingToRefreshVelocity;
+	}
+
 	/**
 	 * @方法描述:	处理用户滑动的方法
 	 * @作者:zhangshuo
@@ -519,15 +1566,17 @@ public class PullToRefreshView extends RelativeLayout {
 			break;
 		}
 		
+		final View contentView = getContentView();
+		/*contentView中实际滚动的内容*/
+		final View scrollContent = contentView instanceof ViewGroup ? ((ViewGroup) contentView).getChildAt(0) : null;
 		if(isRefreshing() && pullWithRefreshingCount == 0){
 			/*处于刷新状态下，第一次继续下拉，此时headerView已经显示在头部*/
 			if((-headerHeight + newHeight) < 0){
 				scrollTo(-headerHeight + newHeight);
 			}else{
 				scrollTo(0);
-				if(null != ((ViewGroup)getChildAt(index)).getChildAt(0) 
-						&& ((ViewGroup)getChildAt(index)).getChildAt(0).getHeight() > getChildAt(index).getHeight()){
-					getChildAt(index).scrollTo(0, newHeight - headerHeight);
+				if(null != scrollContent && scrollContent.getHeight() > contentView.getHeight()){
+					contentView.scrollTo(0, newHeight - headerHeight);
 				}
 			}
 		}else if(isLoadingMore() && pullWithLoadingMoreCount == 0){
@@ -536,41 +1585,58 @@ public class PullToRefreshView extends RelativeLayout {
 				scrollTo(headerHeight + newHeight);
 			}else{
 				scrollTo(0);
-				if(null != ((ViewGroup)getChildAt(index)).getChildAt(0) 
-						&& ((ViewGroup)getChildAt(index)).getChildAt(0).getHeight() > getChildAt(index).getHeight()){
-					getChildAt(index).scrollTo(0, newHeight + headerHeight + ((ViewGroup)getChildAt(index)).getChildAt(0).getHeight() - getChildAt(index).getHeight());
+				if(null != scrollContent && scrollContent.getHeight() > contentView.getHeight()){
+					contentView.scrollTo(0, newHeight + headerHeight + scrollContent.getHeight() - contentView.getHeight());
 				}
 			}
 		}else{
 			scrollTo(newHeight);
 		}
-		
+
+		return updatePullState(newHeight) || oldHeight != newHeight;
+	}
+
+	/**
+	 * @方法描述:	根据拉出的距离切换headerView或footerView的“下拉刷新”、“释放刷新”状态
+	 * @param newHeight 拉出的距离，下拉为负
+	 * @return 状态是否发生了变化
+	 */
+	private boolean updatePullState(int newHeight) {
+		updateSpeculativeRefresh(newHeight);
 		if (newHeight != 0) {
 			
 			switch (currentMode) {
 			case MODE_PULL_UP_TO_REFRESH:
 				if (footerState == PULL_TO_REFRESH && headerHeight < Math.abs(newHeight)) {
 					footerState = RELEASE_TO_REFRESH;
-					footerLayout.releaseToRefresh();
+					if (null != footerLayout) {
+						footerLayout.releaseToRefresh();
+					}
 					return true;
 
 				} else if (footerState == RELEASE_TO_REFRESH
 						&& headerHeight >= Math.abs(newHeight)) {
 					footerState = PULL_TO_REFRESH;
-					footerLayout.pullToRefresh();
+					if (null != footerLayout) {
+						footerLayout.pullToRefresh();
+					}
 					return true;
 				}
 				break;
 			case MODE_PULL_DOWN_TO_REFRESH:
 				if (headerState == PULL_TO_REFRESH && headerHeight < Math.abs(newHeight)) {
 					headerState = RELEASE_TO_REFRESH;
-					headerLayout.releaseToRefresh();
+					if (null != headerLayout) {
+						headerLayout.releaseToRefresh();
+					}
 					return true;
 
 				} else if (headerState == RELEASE_TO_REFRESH
 						&& headerHeight >= Math.abs(newHeight)) {
 					headerState = PULL_TO_REFRESH;
-					headerLayout.pullToRefresh();
+					if (null != headerLayout) {
+						headerLayout.pullToRefresh();
+					}
 					return true;
 				}
 				break;
@@ -578,7 +1644,7 @@ public class PullToRefreshView extends RelativeLayout {
 			
 		}
 
-		return oldHeight != newHeight;
+		return false;
 	}
 	
 	/**
@@ -604,30 +1670,9 @@ public class PullToRefreshView extends RelativeLayout {
 	 * @return
 	 */
 	public boolean isReadyForPullDown() {
-		// TODO Auto-generated method stub
-		if (getChildCount() > 1) {
-//			Log.e("Ready--down", String.valueOf(getChildCount()));
-			View childView = this.getChildAt(index);
-			if (childView instanceof ListView) {
-				ListView mListView = (ListView) childView;
-				final Adapter adapter = mListView.getAdapter();
-				if (null == adapter || adapter.isEmpty()) return true;
-				
-				if (mListView.getFirstVisiblePosition() == 0) {
-					final View firstVisibleChild = mListView.getChildAt(0);
-					if (firstVisibleChild != null) {
-						return firstVisibleChild.getTop() >= mListView.getTop();
-					}
-				}
-			} else if (childView instanceof ScrollView) {
-//				Log.e("Ready--down", "scrollView");
-				if (((ScrollView) childView).getScrollY() == 0) {
-					return true;
-				} else {
-					return false;
-				}
-			}
-
+		final View contentView = getContentView();
+		if (null != contentView) {
+			return trackContent(contentView).isAtTop();
 		}
 		return false;
 	}
@@ -638,39 +1683,124 @@ public class PullToRefreshView extends RelativeLayout {
 	 * @return
 	 */
 	public boolean isReadyForPullUp() {
-		// TODO Auto-generated method stub
-		if (getChildCount() > 1) {
-//			Log.e("Ready--up", String.valueOf(getChildCount()));
-			View childView = this.getChildAt(index);
-			if (childView instanceof ListView) {
-				ListView mListView = (ListView) childView;
-				final Adapter adapter = mListView.getAdapter();
-				if (null == adapter || adapter.isEmpty()) return true;
-				
-				final int lastItemPosition = mListView.getCount() - 1;
-				final int lastVisiblePosition = mListView.getLastVisiblePosition();
-				if (lastVisiblePosition >= lastItemPosition - 1) {
-					final int childIndex = lastVisiblePosition - mListView.getFirstVisiblePosition();
-					final View lastVisibleChild = mListView.getChildAt(childIndex);
-					if (lastVisibleChild != null) {
-						return lastVisibleChild.getBottom() <= mListView.getBottom();
-					}
-				}
-			} else if (childView instanceof ScrollView) {
-//				Log.e("Ready--up", "scrollView");
-				int off = ((ScrollView) childView).getScrollY()
-						+ ((ScrollView) childView).getHeight()
-						- ((ScrollView) childView).getChildAt(0).getHeight();
-				if (off >= 0) {
-					return true;
-				} else {
-					return false;
-				}
+		final View contentView = getContentView();
+		if (null != contentView) {
+			return trackContent(contentView).isAtBottom();
+		}
+		return false;
+	}
+
+	/**
+	 * @方法描述: 确保edgeTracker跟踪的是当前的contentView
+	 * @param childView
+	 * @return
+	 */
+	private ContentEdgeTracker trackContent(View childView) {
+		if (edgeTracker.getContent() != childView) {
+			edgeTracker.track(childView, getReadinessStrategy(childView));
+			if (attachedToWindow) {
+				edgeTracker.startListening(getViewTreeObserver());
 			}
+		}
+		return edgeTracker;
+	}
 
+	/**
+	 * @方法描述: 获取contentView的边界判断策略，未指定时按contentView的类从PullReadinessRegistry中解析，
+	 * 同一个类只解析一次
+	 * @param childView
+	 * @return
+	 */
+	private PullReadinessStrategy getReadinessStrategy(View childView) {
+		if (null != readinessStrategy) {
+			return readinessStrategy;
 		}
-		return false;
+		final Class<? extends View> childClass = childView.getClass();
+		if (childClass != resolvedReadinessClass) {
+			resolvedReadinessStrategy = PullReadinessRegistry.resolve(childClass);
+			resolvedReadinessClass = childClass;
+		}
+		return resolvedReadinessStrategy;
+	}
+
+	/**
+	 * 设置contentView的边界判断策略，为null时按contentView的类从PullReadinessRegistry中查找
+	 * @param strategy
+	 */
+	public void setPullReadinessStrategy(PullReadinessStrategy strategy) {
+		this.readinessStrategy = strategy;
+		if (null != edgeTracker.getContent()) {
+			edgeTracker.setStrategy(getReadinessStrategy(edgeTracker.getContent()));
+		}
+	}
+
+	public PullReadinessStrategy getPullReadinessStrategy() {
+		return readinessStrategy;
+	}
+
+	/**
+	 * @方法描述: contentView滑动后检查是否需要提前加载更多。
+	 * 接近底部时开始加载但不显示footerView，数据返回前已经滑到底部时才显示footerView
+	 */
+	private void checkLoadMorePrefetch() {
+		if (!loadMorePrefetchEnabled || isBeingDragged || !attachedToWindow) {
+			return;
+		}
+		if (mode != MODE_PULL_UP_TO_REFRESH && mode != MODE_BOTH) {
+			return;
+		}
+		if (null == onLoadMoreListener && null == asyncLoadMoreListener) {
+			return;
+		}
+		if (isLoadingMore()) {
+			return;
+		}
+		if (prefetchInFlight) {
+			if (isReadyForPullUp()) {
+				/*数据还没有返回就已经滑到底部*/
+				ensureFooterLayout();
+				setLoadingMoreInternal(true);
+			}
+			return;
+		}
+		final View contentView = getContentView();
+		if (null == contentView) {
+			return;
+		}
+		final PullReadinessStrategy strategy = getReadinessStrategy(contentView);
+		final boolean nearEnd = strategy instanceof PullPrefetchStrategy
+				? ((PullPrefetchStrategy) strategy).isNearEnd(contentView, prefetchItemThreshold, prefetchPixelThreshold)
+				: isReadyForPullUp();
+		if (nearEnd) {
+			prefetchInFlight = true;
+			post(prefetchRunnable);
+		}
+	}
+
+	public boolean isLoadMorePrefetchEnabled() {
+		return loadMorePrefetchEnabled;
+	}
+
+	/**
+	 * 设置是否在contentView接近底部时自动回调加载更多接口（无限滚动），默认关闭。
+	 * 加载过程中不会重复回调，结束后需要调用onLoadMoreComplete()（异步接口会自动调用）；
+	 * 没有更多数据时请关闭，否则每次滑到底部都会再次回调
+	 * @param enabled
+	 */
+	public void setLoadMorePrefetchEnabled(boolean enabled) {
+		this.loadMorePrefetchEnabled = enabled;
+	}
+
+	/**
+	 * 设置提前加载更多的距离，满足任一条件即开始加载
+	 * @param itemThreshold 距离最后一项的项数，适用于ListView、GridView等，默认5
+	 * @param pixelThreshold 距离底部的像素，默认500dip
+	 */
+	public void setLoadMorePrefetchDistance(int itemThreshold, int pixelThreshold) {
+		this.prefetchItemThreshold = itemThreshold;
+		this.prefetchPixelThreshold = pixelThreshold;
 	}
+
 	
 	/**
 	 * @方法描述:	是否允许上拉更多或下拉刷新的滑动操作
@@ -724,10 +1854,223 @@ public class PullToRefreshView extends RelativeLayout {
 	 *
 	 */
 	public final void onRefreshComplete() {
+		if (null != refreshOperation) {
+			/*手动结束时放弃正在执行的异步任务*/
+			refreshOperation.abandon();
+			refreshOperation = null;
+		}
+		abandonRefreshDiff();
 		if (headerState != PULL_TO_REFRESH) {
 			resetHeader();
 		}
+		finishRefresh();
+	}
+
+	/**
+	 * @方法描述:	放弃尚未应用的刷新数据比较，其结果不再替换数据
+	 */
+	private void abandonRefreshDiff() {
+		if (null != refreshDiffOperation) {
+			refreshDiffOperation.abandon();
+			refreshDiffOperation = null;
+		}
+	}
+
+	/**
+	 * @方法描述:	结束刷新状态，并保持当前第一个可见的数据项（不含ListView的headerView）的位置不变。
+	 * 在Adapter的头部插入了新数据并notifyDataSetChanged()之后、列表重新布局之前调用，
+	 * headerView立即收起，同时列表按收起的距离和新插入的项数重新定位，两者在同一帧生效，内容不会跳动。
+	 * 由于notifyDataSetChanged()，可见的项在下一次布局时仍会重新绑定；锚点项上方因收起headerView空出的区域
+	 * 会由新插入的最后几项填充，这些项同样会被绑定。contentView不是ListView、正在拖动或insertedCount小于等于0时
+	 * 与onRefreshComplete()相同，没有可见的数据项时也与onRefreshComplete()相同
+	 * @param insertedCount 在头部插入的项数
+	 */
+	public final void onRefreshComplete(int insertedCount) {
+		final View contentView = getContentView();
+		if (insertedCount <= 0 || !(contentView instanceof ListView) || isBeingDragged
+				|| headerState == PULL_TO_REFRESH) {
+			onRefreshComplete();
+			return;
+		}
+		final ListView listView = (ListView) contentView;
+		/*ListView的headerView不随插入移动，以第一个可见的数据项为锚点*/
+		final int firstVisiblePosition = listView.getFirstVisiblePosition();
+		final int childIndex = Math.max(0, listView.getHeaderViewsCount() - firstVisiblePosition);
+		if (childIndex >= listView.getChildCount()) {
+			onRefreshComplete();
+			return;
+		}
+		completeRefreshAnchored(listView, childIndex, firstVisiblePosition + childIndex + insertedCount);
+	}
+
+	/**
+	 * @方法描述:	结束刷新状态，收起headerView，同时把第childIndex个可见子View对应的项定位到newPosition，
+	 * 使其在屏幕上的位置保持不变
+	 * @param listView
+	 * @param childIndex 作为锚点的可见子View
+	 * @param newPosition 锚点项在新数据中的位置（含ListView的headerView）
+	 */
+	private void completeRefreshAnchored(ListView listView, int childIndex, int newPosition) {
+		if (null != refreshOperation) {
+			refreshOperation.abandon();
+			refreshOperation = null;
+		}
+		abandonRefreshDiff();
+		final View anchorChild = listView.getChildAt(childIndex);
+		/*收起headerView后锚点项在屏幕上的位置保持不变*/
+		final int top = (null != anchorChild ? anchorChild.getTop() : listView.getPaddingTop()) - getScrollY();
+
+		headerState = PULL_TO_REFRESH;
+		isBeingDragged = false;
+		snapBackCaught = false;
+		if (null != headerLayout) {
+			headerLayout.reset();
+		}
+		requestPullProgressDispatch();
+		springAnimator.cancel();
+		scrollTo(0);
+		listView.setSelectionFromTop(newPosition, top);
+		finishRefresh();
+	}
+
+	/**
+	 * @方法描述:	在后台比较刷新前后的数据，在主线程中把items替换为newItems，只做必要的更新后结束刷新状态：
+	 * 没有插入、删除和移动时只重新绑定内容变化且可见的项，不重新布局；否则通知Adapter并保持第一个可见项的位置。
+	 * contentView需要是AbsListView且Adapter继承自BaseAdapter，否则只替换数据并结束刷新状态。
+	 * 比较结束前再次调用、手动结束刷新或从窗口detach时，本次比较被放弃，items保持不变
+	 * @param items Adapter使用的数据，只能在主线程中修改
+	 * @param newItems 刷新得到的数据
+	 * @param callback 列表项的比较方式，在后台线程中调用
+	 */
+	public final <T> void onRefreshComplete(final List<T> items, List<T> newItems, final ListDiffer.ItemCallback<T> callback) {
+		/*之前的比较尚未结束时以本次为准*/
+		abandonRefreshDiff();
+		final List<T> oldSnapshot = new ArrayList<T>(items);
+		final List<T> newSnapshot = new ArrayList<T>(newItems);
+		final AsyncOperation<ListDiffer.Result> operation = new AsyncOperation<ListDiffer.Result>(
+				new Callable<ListDiffer.Result>() {
+
+					@Override
+					public ListDiffer.Result call() throws Exception {
+						return ListDiffer.diff(oldSnapshot, newSnapshot, callback);
+					}
+				}, new AsyncOperation.Callback<ListDiffer.Result>() {
+
+					@Override
+					public void onSuccess(ListDiffer.Result result) {
+						refreshDiffOperation = null;
+						if (sameItems(items, oldSnapshot)) {
+							applyDiff(items, newSnapshot, result);
+						} else {
+							/*比较期间数据被修改，整体替换*/
+							applyDiff(items, newSnapshot, null);
+						}
+					}
+
+					@Override
+					public void onFailure(Throwable error) {
+						refreshDiffOperation = null;
+						applyDiff(items, newSnapshot, null);
+					}
+				});
+		refreshDiffOperation = operation;
+		operation.start(getAsyncExecutor(), 0);
+	}
+
+	private static <T> boolean sameItems(List<T> items, List<T> snapshot) {
+		if (items.size() != snapshot.size()) {
+			return false;
+		}
+		for (int i = 0; i < snapshot.size(); i++) {
+			if (items.get(i) != snapshot.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @方法描述:	替换数据并按比较结果更新列表，然后结束刷新状态
+	 * @param result 为null时整体刷新
+	 */
+	private <T> void applyDiff(List<T> items, List<T> newItems, ListDiffer.Result result) {
+		items.clear();
+		items.addAll(newItems);
+
+		final View contentView = getContentView();
+		final AbsListView listView = contentView instanceof AbsListView ? (AbsListView) contentView : null;
+		Adapter adapter = null != listView ? listView.getAdapter() : null;
+		if (adapter instanceof HeaderViewListAdapter) {
+			adapter = ((HeaderViewListAdapter) adapter).getWrappedAdapter();
+		}
+		if (!(adapter instanceof BaseAdapter)) {
+			onRefreshComplete();
+			return;
+		}
+		final BaseAdapter baseAdapter = (BaseAdapter) adapter;
+		final int headerCount = listView instanceof ListView ? ((ListView) listView).getHeaderViewsCount() : 0;
+		final int firstVisiblePosition = listView.getFirstVisiblePosition();
+		final int childCount = listView.getChildCount();
+
+		if (null != result && !result.structural && baseAdapter.getViewTypeCount() == 1) {
+			/*只有内容变化：直接重新绑定可见的变化项，复用原来的子View*/
+			boolean rebound = true;
+			for (int i = 0; i < childCount && rebound; i++) {
+				final int position = firstVisiblePosition + i - headerCount;
+				if (position < 0 || position >= result.newChanged.length || !result.newChanged[position]) {
+					continue;
+				}
+				final View child = listView.getChildAt(i);
+				rebound = baseAdapter.getView(position, child, listView) == child;
+			}
+			if (!rebound) {
+				baseAdapter.notifyDataSetChanged();
+			}
+			onRefreshComplete();
+			return;
+		}
+
+		/*有插入、删除或移动：以第一个保留下来的可见项为锚点*/
+		int anchorChild = -1;
+		int anchorPosition = -1;
+		if (null != result && listView instanceof ListView) {
+			for (int i = 0; i < childCount; i++) {
+				final int position = firstVisiblePosition + i - headerCount;
+				if (position < 0) {
+					continue;
+				}
+				if (position >= result.oldToNew.length) {
+					break;
+				}
+				if (result.oldToNew[position] >= 0) {
+					anchorChild = i;
+					anchorPosition = result.oldToNew[position] + headerCount;
+					break;
+				}
+			}
+		}
+		baseAdapter.notifyDataSetChanged();
+		if (anchorChild >= 0 && !isBeingDragged && headerState != PULL_TO_REFRESH) {
+			completeRefreshAnchored((ListView) listView, anchorChild, anchorPosition);
+		} else {
+			onRefreshComplete();
+		}
+	}
+
+	/**
+	 * @方法描述:	刷新状态结束后的处理，执行刷新过程中推迟的加载更多
+	 */
+	private void finishRefresh() {
 		pullWithRefreshingCount = 0;
+		if (loadMoreDeferred) {
+			/*执行刷新过程中推迟的加载更多，控件已经detach时放弃*/
+			loadMoreDeferred = false;
+			if (attachedToWindow) {
+				dispatchLoadMore();
+			} else {
+				onLoadMoreComplete();
+			}
+		}
 	}
 	
 	/**
@@ -736,6 +2079,12 @@ public class PullToRefreshView extends RelativeLayout {
 	 *
 	 */
 	public final void onLoadMoreComplete() {
+		prefetchInFlight = false;
+		removeCallbacks(prefetchRunnable);
+		if (null != loadMoreOperation) {
+			loadMoreOperation.abandon();
+			loadMoreOperation = null;
+		}
 		if (footerState != PULL_TO_REFRESH) {
 			resetFooter();
 		}
@@ -774,6 +2123,7 @@ public class PullToRefreshView extends RelativeLayout {
 	 */
 	public final void setRefreshing(boolean doScroll) {
 		if (!isRefreshing()) {
+			ensureHeaderLayout();
 			setRefreshingInternal(doScroll);
 			headerState = MANUAL_REFRESHING;
 		}
@@ -786,6 +2136,7 @@ public class PullToRefreshView extends RelativeLayout {
 	 */
 	public final void setLoadingMore(boolean doScroll) {
 		if (!isLoadingMore()) {
+			ensureFooterLayout();
 			setLoadingMoreInternal(doScroll);
 			footerState = MANUAL_REFRESHING;
 		}
@@ -795,11 +2146,33 @@ public class PullToRefreshView extends RelativeLayout {
 		return currentMode;
 	}
 
+	/**
+	 * footerView在第一次拉动或强制加载更多时才创建，之前返回null；
+	 * 启用了FlatLoadingLayout时也返回null，请使用getFooterLoadingLayout()
+	 */
 	protected final LoadingLayout getFooterLayout() {
-		return footerLayout;
+		return footerLayout instanceof LoadingLayout ? (LoadingLayout) footerLayout : null;
 	}
 
+	/**
+	 * headerView在第一次拉动或强制刷新时才创建，之前返回null；
+	 * 启用了FlatLoadingLayout时也返回null，请使用getHeaderLoadingLayout()
+	 */
 	protected final LoadingLayout getHeaderLayout() {
+		return headerLayout instanceof LoadingLayout ? (LoadingLayout) headerLayout : null;
+	}
+
+	/**
+	 * footerView在第一次拉动或强制加载更多时才创建，之前返回null
+	 */
+	protected final ILoadingLayout getFooterLoadingLayout() {
+		return footerLayout;
+	}
+
+	/**
+	 * headerView在第一次拉动或强制刷新时才创建，之前返回null
+	 */
+	protected final ILoadingLayout getHeaderLoadingLayout() {
 		return headerLayout;
 	}
 
@@ -819,6 +2192,26 @@ public class PullToRefreshView extends RelativeLayout {
 		this.mode = mode;
 	}
 
+	/**
+	 * 是否按帧合并处理拖动事件
+	 * @return
+	 */
+	public boolean isFrameCoalescingEnabled() {
+		return frameCoalescingEnabled;
+	}
+
+	/**
+	 * 设置是否按帧合并处理拖动事件，开启后每一帧最多滑动一次并回调一次OnDraggingListener，
+	 * 关闭后每个move事件都立即处理
+	 * @param enabled
+	 */
+	public void setFrameCoalescingEnabled(boolean enabled) {
+		this.frameCoalescingEnabled = enabled;
+		if (!enabled) {
+			flushPendingPullEvent();
+		}
+	}
+
 	/**
 	 * 是否处于上拉或下拉状态
 	 * @return
@@ -834,6 +2227,8 @@ public class PullToRefreshView extends RelativeLayout {
 	protected void resetHeader() {
 		headerState = PULL_TO_REFRESH;
 		isBeingDragged = false;
+		snapBackCaught = false;
+		requestPullProgressDispatch();
 
 		if (null != headerLayout) {
 			headerLayout.reset();
@@ -849,6 +2244,8 @@ public class PullToRefreshView extends RelativeLayout {
 	protected void resetFooter() {
 		footerState = PULL_TO_REFRESH;
 		isBeingDragged = false;
+		snapBackCaught = false;
+		requestPullProgressDispatch();
 
 		if (null != footerLayout) {
 			footerLayout.reset();
@@ -865,6 +2262,7 @@ public class PullToRefreshView extends RelativeLayout {
 	protected void setRefreshingInternal(boolean doScroll) {
 		headerState = REFRESHING;
 		pullWithRefreshingCount = 0;
+		requestPullProgressDispatch();
 		
 		if (null != headerLayout) {
 			headerLayout.refreshing();
@@ -883,6 +2281,7 @@ public class PullToRefreshView extends RelativeLayout {
 	protected void setLoadingMoreInternal(boolean doScroll) {
 		footerState = REFRESHING;
 		pullWithLoadingMoreCount = 0;
+		requestPullProgressDispatch();
 		
 		if (null != footerLayout) {
 			footerLayout.refreshing();
@@ -898,31 +2297,56 @@ public class PullToRefreshView extends RelativeLayout {
 	}
 
 	protected final void smoothScrollTo(int y) {
-		scroller.startScroll(0, getScrollY(), 0, -(getScrollY() - y), 400);
-		invalidate();
-
+		smoothScrollTo(y, 0);
 	}
 
-	@Override
-	public void computeScroll() {
-		// TODO Auto-generated method stub
-		if (scroller.computeScrollOffset()) {
-			scrollTo(0, this.scroller.getCurrY());
-			if(null != this.onDraggingListener){
-				this.onDraggingListener.onPullBack(this.scroller.getCurrY());
-			}
-			postInvalidate();
-		}else{
-			
+	/**
+	 * @方法描述:	以弹簧动画滚动到指定位置，动画在每一帧只更新scrollY
+	 * @param y 目标位置
+	 * @param velocity 初速度，单位px/s
+	 */
+	protected final void smoothScrollTo(int y, float velocity) {
+		final int from = getScrollY();
+		springSide = Integer.signum(from != 0 ? from : y);
+		springAnimator.start(from, y, velocity);
+		if (springAnimator.isRunning()) {
+			frameScheduler.schedule();
+		} else {
+			scrollTo(y);
 		}
 	}
-	
+
 	/**
 	 * 返回当前动画过程是否执行结束
 	 * @return
 	 */
 	public boolean isAnimFinished(){
-		return scroller.isFinished();
+		return !springAnimator.isRunning();
+	}
+
+	/**
+	 * 设置回弹动画的刚度，数值越大回弹越快，默认为300
+	 * @param stiffness
+	 */
+	public void setSpringStiffness(float stiffness) {
+		springAnimator.setStiffness(stiffness);
+	}
+
+	public float getSpringStiffness() {
+		return springAnimator.getStiffness();
+	}
+
+	/**
+	 * 设置回弹动画的阻尼比，小于1时会越过目标位置后再弹回，默认为1（临界阻尼）。
+	 * 回弹到0时不会越过0拉出另一侧的headerView或footerView
+	 * @param dampingRatio
+	 */
+	public void setSpringDampingRatio(float dampingRatio) {
+		springAnimator.setDampingRatio(dampingRatio);
+	}
+
+	public float getSpringDampingRatio() {
+		return springAnimator.getDampingRatio();
 	}
 
 	/**
@@ -935,7 +2359,9 @@ public class PullToRefreshView extends RelativeLayout {
 	}
 	
 	/**
-	 * @方法描述:	设置加载更多回调接口
+	 * @方法描述:	设置加载更多回调接口。刷新优先：刷新过程中触发的加载更多推迟到刷新结束后回调，
+	 * 开始刷新时结束正在进行的加载更多状态，之后返回的旧数据需要丢弃。
+	 * 实现OnCancellableLoadMoreListener时会在此时回调onLoadMoreCancelled()
 	 * @作者:zhangshuo
 	 * @param listener
 	 */
@@ -943,6 +2369,78 @@ public class PullToRefreshView extends RelativeLayout {
 		this.onLoadMoreListener  = listener;
 	}
 	
+	/**
+	 * 设置异步刷新回调接口，onRefresh()返回的任务在后台执行，结束、失败、超时或控件detach时
+	 * 自动结束刷新状态，不需要再调用onRefreshComplete()。可以与OnRefreshListener同时设置
+	 * @param listener
+	 */
+	public final void setOnAsyncRefreshListener(OnAsyncRefreshListener<?> listener) {
+		this.asyncRefreshListener = listener;
+	}
+
+	/**
+	 * 设置异步加载更多回调接口，用法同setOnAsyncRefreshListener()
+	 * @param listener
+	 */
+	public final void setOnAsyncLoadMoreListener(OnAsyncLoadMoreListener<?> listener) {
+		this.asyncLoadMoreListener = listener;
+	}
+
+	/**
+	 * 设置共用数据源的协调器，同一个数据源id上的异步刷新和加载更多只执行一次，所有等待的PullToRefreshView
+	 * 在任务结束时一起结束刷新状态。coordinator或dataSourceKey为null时各自执行
+	 * @param coordinator
+	 * @param dataSourceKey 数据源id
+	 */
+	public void setRefreshCoordinator(RefreshCoordinator coordinator, String dataSourceKey) {
+		this.refreshCoordinator = coordinator;
+		this.dataSourceKey = dataSourceKey;
+	}
+
+	/**
+	 * 设置预判刷新的阈值。下拉超过headerView高度的该比例时提前回调OnSpeculativeRefreshListener.onPrepareRefresh()，
+	 * 并提前开始OnAsyncRefreshListener的任务；用户释放并触发刷新时确认。
+	 * 退回到阈值的80%以下时回调onCancelPrepareRefresh()，但已经开始的异步任务在同一次拖动中继续执行，再次超过阈值时沿用；
+	 * 释放时未触发刷新才放弃该任务，并以CancellationException回调OnAsyncRefreshListener.onRefreshFailure()。
+	 * 小于等于0时关闭，默认关闭
+	 * @param fraction 例如0.7
+	 */
+	public void setSpeculativeRefreshThreshold(float fraction) {
+		this.speculativeRefreshThreshold = fraction;
+	}
+
+	public float getSpeculativeRefreshThreshold() {
+		return speculativeRefreshThreshold;
+	}
+
+	/**
+	 * 设置预判刷新回调接口，需要同时设置setSpeculativeRefreshThreshold()
+	 * @param listener
+	 */
+	public void setOnSpeculativeRefreshListener(OnSpeculativeRefreshListener listener) {
+		this.speculativeRefreshListener = listener;
+	}
+
+	/**
+	 * 设置执行异步刷新和加载更多任务的Executor，为null时使用默认的后台线程池
+	 * @param executor
+	 */
+	public void setAsyncExecutor(Executor executor) {
+		this.asyncExecutor = executor;
+	}
+
+	public long getAsyncTimeout() {
+		return asyncTimeout;
+	}
+
+	/**
+	 * 设置异步任务的超时时间，超时后中断任务并以TimeoutException回调，小于等于0时不限制，默认30秒
+	 * @param timeout 单位毫秒
+	 */
+	public void setAsyncTimeout(long timeout) {
+		this.asyncTimeout = timeout;
+	}
+
 	/**
 	 * 设置进入上拉或下拉状态回调接口
 	 * @param onDraggingListener
@@ -951,6 +2449,47 @@ public class PullToRefreshView extends RelativeLayout {
 		this.onDraggingListener = onDraggingListener;
 	}
 
+	/**
+	 * 添加拉动进度监听，可以添加多个，每帧最多回调一次
+	 * @param listener
+	 */
+	public void addOnPullProgressListener(OnPullProgressListener listener) {
+		if (null == listener) {
+			return;
+		}
+		final OnPullProgressListener[] old = pullProgressListeners;
+		for (int i = 0; i < old.length; i++) {
+			if (old[i] == listener) {
+				return;
+			}
+		}
+		final OnPullProgressListener[] listeners = new OnPullProgressListener[old.length + 1];
+		System.arraycopy(old, 0, listeners, 0, old.length);
+		listeners[old.length] = listener;
+		pullProgressListeners = listeners;
+	}
+
+	/**
+	 * 移除拉动进度监听
+	 * @param listener
+	 */
+	public void removeOnPullProgressListener(OnPullProgressListener listener) {
+		final OnPullProgressListener[] old = pullProgressListeners;
+		for (int i = 0; i < old.length; i++) {
+			if (old[i] == listener) {
+				if (old.length == 1) {
+					pullProgressListeners = NO_PULL_PROGRESS_LISTENERS;
+					return;
+				}
+				final OnPullProgressListener[] listeners = new OnPullProgressListener[old.length - 1];
+				System.arraycopy(old, 0, listeners, 0, i);
+				System.arraycopy(old, i + 1, listeners, i, old.length - i - 1);
+				pullProgressListeners = listeners;
+				return;
+			}
+		}
+	}
+
 	/**
 	 * @公司: 南京红松信息技术有限公司
 	 * @CLASS:OnRefreshListener
@@ -979,6 +2518,75 @@ public class PullToRefreshView extends RelativeLayout {
 
 	}
 
+	/**
+	 * 可取消的加载更多回调接口。开始刷新时正在进行的加载更多被取消，回调onLoadMoreCancelled()，
+	 * 之后该次加载返回的数据不应再添加到列表中，也不需要再调用onLoadMoreComplete()
+	 */
+	public static interface OnCancellableLoadMoreListener extends OnLoadMoreListener {
+
+		public void onLoadMoreCancelled();
+	}
+
+	/**
+	 * 预判刷新回调接口，可在用户释放之前预先建立连接或开始请求
+	 */
+	public static interface OnSpeculativeRefreshListener {
+
+		/**下拉超过阈值，用户很可能释放刷新；确认后仍会回调OnRefreshListener.onRefresh()*/
+		public void onPrepareRefresh();
+
+		/**退回到阈值以下或释放时未触发刷新，取消预先开始的工作*/
+		public void onCancelPrepareRefresh();
+	}
+
+	/**
+	 * 异步刷新回调接口，所有方法都在主线程中调用
+	 * @param <T> 刷新任务的结果类型
+	 */
+	public static interface OnAsyncRefreshListener<T> {
+
+		/**
+		 * 开始刷新，返回在后台线程中执行的任务，返回null时需要自己调用onRefreshComplete()。
+		 * 设置了setSpeculativeRefreshThreshold()时可能在用户释放之前（下拉过程中）调用，
+		 * 之后释放时未触发刷新则放弃该任务，并以CancellationException回调onRefreshFailure()。
+		 * 返回了任务时，onRefreshSuccess()和onRefreshFailure()之一总会被回调一次，手动结束刷新时除外
+		 */
+		public Callable<T> onRefresh();
+
+		/**
+		 * 任务成功结束，之后自动结束刷新状态。在其中更新Adapter后可调用onRefreshComplete(int)保持列表位置，
+		 * 或调用onRefreshComplete(List, List, ItemCallback)在后台比较数据
+		 */
+		public void onRefreshSuccess(T result);
+
+		/**
+		 * 任务失败，刷新状态已经结束
+		 * @param error 任务抛出的异常，超时为TimeoutException，控件detach时为CancellationException
+		 */
+		public void onRefreshFailure(Throwable error);
+	}
+
+	/**
+	 * 异步加载更多回调接口，所有方法都在主线程中调用
+	 * @param <T> 加载任务的结果类型
+	 */
+	public static interface OnAsyncLoadMoreListener<T> {
+
+		/**
+		 * 开始加载更多，返回在后台线程中执行的任务，返回null时需要自己调用onLoadMoreComplete()
+		 */
+		public Callable<T> onLoadMore();
+
+		/**任务成功结束，加载更多状态已经结束*/
+		public void onLoadMoreSuccess(T result);
+
+		/**
+		 * 任务失败，加载更多状态已经结束
+		 * @param error 任务抛出的异常，超时为TimeoutException，控件detach时为CancellationException
+		 */
+		public void onLoadMoreFailure(Throwable error);
+	}
+
 	/**
 	 * 进入上拉或下拉状态监听器
 	 * @author zhangshuo
@@ -1001,20 +2609,36 @@ public class PullToRefreshView extends RelativeLayout {
 		/**上拉或下拉操作释放*/
 		public void onPullRelease();
 	}
+
+	/**
+	 * 拉动进度监听器，在帧末尾回调，同一帧内最多一次，进度和状态都没有变化时不回调
+	 */
+	public static interface OnPullProgressListener {
+
+		/**
+		 * @param progress 拉出的距离与headerView高度之比，0为完全收起，大于1表示超过了释放刷新的距离
+		 * @param direction PULL_DIRECTION_NONE、PULL_DIRECTION_DOWN或PULL_DIRECTION_UP
+		 * @param state PULL_TO_REFRESH、RELEASE_TO_REFRESH、REFRESHING或MANUAL_REFRESHING
+		 */
+		public void onPullProgress(float progress, int direction, int state);
+	}
 	
 	/**
 	 * 设置刷新时间
 	 * @param time
 	 */
 	public void setRefreshTime(long time) {
-		headerLayout.setRefreshTime(time);
+		this.refreshTime = time;
+		if (null != headerLayout) {
+			headerLayout.setRefreshTime(time);
+		}
 	}
 
 	/**
 	 * 设置刷新时间为当前时间
 	 */
 	public void setRefreshTimeToCurrent(){
-		headerLayout.setRefreshTimeToCurrent();
+		setRefreshTime(System.currentTimeMillis());
 	}
 	
 	public int getHeaderBackgroundColor() {
@@ -1023,7 +2647,9 @@ public class PullToRefreshView extends RelativeLayout {
 
 	public void setHeaderBackgroundColor(int headerBackgroundColor) {
 		this.headerBackgroundColor = headerBackgroundColor;
-		this.headerLayout.setBackgroundColor(headerBackgroundColor);
+		if (null != headerLayout) {
+			((View) headerLayout).setBackgroundColor(headerBackgroundColor);
+		}
 	}
 
 	public int getHeaderBackgroundResource() {
@@ -1038,7 +2664,9 @@ public class PullToRefreshView extends RelativeLayout {
 	 */
 	public void setHeaderBackgroundResource(int headerBackgroundResource) {
 		this.headerBackgroundResource = headerBackgroundResource;
-		this.headerLayout.setBackgroundResource(headerBackgroundResource);
+		if (null != headerLayout) {
+			((View) headerLayout).setBackgroundResource(headerBackgroundResource);
+		}
 	}
 
 	public int getContentBackgroundColor() {
@@ -1065,7 +2693,9 @@ public class PullToRefreshView extends RelativeLayout {
 
 	public void setFooterBackgroundColor(int footerBackgroundColor) {
 		this.footerBackgroundColor = footerBackgroundColor;
-		this.footerLayout.setBackgroundColor(footerBackgroundColor);
+		if (null != footerLayout) {
+			((View) footerLayout).setBackgroundColor(footerBackgroundColor);
+		}
 	}
 
 	public int getFooterBackgroundResource() {
@@ -1080,7 +2710,9 @@ public class PullToRefreshView extends RelativeLayout {
 	 */
 	public void setFooterBackgroundResource(int footerBackgroundResource) {
 		this.footerBackgroundResource = footerBackgroundResource;
-		this.footerLayout.setBackgroundResource(footerBackgroundResource);
+		if (null != footerLayout) {
+			((View) footerLayout).setBackgroundResource(footerBackgroundResource);
+		}
 	}
 
 }
@@ -0,0 +1,181 @@
+package com.zs.pulltorefreshtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+
+/**
+ * 多个PullToRefreshView共用同一个数据源时（如不同Tab显示同一个列表），合并它们的异步刷新和加载更多。
+ * 同一个数据源id上已有任务在执行时，后触发的PullToRefreshView不再执行自己的任务，
+ * 而是等待正在执行的任务，任务结束时所有等待的PullToRefreshView一起结束刷新状态并收到同一个结果。
+ * 刷新和加载更多分别合并。通过PullToRefreshView.setRefreshCoordinator()设置，
+ * 需要配合OnAsyncRefreshListener和OnAsyncLoadMoreListener使用，同一个数据源id的结果类型必须一致。
+ * 只能在主线程中使用
+ */
+public class RefreshCoordinator {
+
+	/**数据源id对应的正在执行的刷新和加载更多*/
+	private final HashMap<String, Flight<?>> refreshFlights = new HashMap<String, Flight<?>>();
+	private final HashMap<String, Flight<?>> loadMoreFlights = new HashMap<String, Flight<?>>();
+
+	/**
+	 * @方法描述: 加入数据源上正在执行的任务，没有时以task创建并开始执行
+	 * @param key 数据源id
+	 * @param loadMore 是否为加载更多
+	 * @param task 没有正在执行的任务时执行的任务
+	 * @param callback 任务结束时的回调
+	 * @param executor 没有正在执行的任务时使用的Executor
+	 * @param timeout 没有正在执行的任务时使用的超时时间，单位毫秒
+	 * @return 本次参与的句柄，取消时只影响自己，所有参与者都取消后才中断任务
+	 */
+	@SuppressWarnings("unchecked")
+	<T> AsyncHandle join(String key, boolean loadMore, Callable<T> task,
+			AsyncOperation.Callback<T> callback, Executor executor, long timeout) {
+		final HashMap<String, Flight<?>> flights = loadMore ? loadMoreFlights : refreshFlights;
+		Flight<T> flight = (Flight<T>) flights.get(key);
+		if (null == flight) {
+			flight = new Flight<T>(flights, key);
+			final Participant<T> participant = flight.add(callback);
+			flights.put(key, flight);
+			flight.start(task, executor, timeout);
+			return participant;
+		}
+		return flight.add(callback);
+	}
+
+	/**
+	 * @param key 数据源id
+	 * @return 该数据源上是否有正在执行的刷新
+	 */
+	public boolean isRefreshing(String key) {
+		return refreshFlights.containsKey(key);
+	}
+
+	/**
+	 * @param key 数据源id
+	 * @return 该数据源上是否有正在执行的加载更多
+	 */
+	public boolean isLoadingMore(String key) {
+		return loadMoreFlights.containsKey(key);
+	}
+
+	/**
+	 * 一个数据源上正在执行的一次任务及其所有参与者
+	 */
+	private static final class Flight<T> implements AsyncOperation.Callback<T> {
+
+		private final HashMap<String, Flight<?>> flights;
+		private final String key;
+		private final ArrayList<Participant<T>> participants = new ArrayList<Participant<T>>();
+		private AsyncOperation<T> operation;
+		private boolean finished = false;
+
+		Flight(HashMap<String, Flight<?>> flights, String key) {
+			this.flights = flights;
+			this.key = key;
+		}
+
+		Participant<T> add(AsyncOperation.Callback<T> callback) {
+			final Participant<T> participant = new Participant<T>(this, callback);
+			participants.add(participant);
+			return participant;
+		}
+
+		void start(Callable<T> task, Executor executor, long timeout) {
+			operation = new AsyncOperation<T>(task, this);
+			operation.start(executor, timeout);
+		}
+
+		/**
+		 * 参与者退出，没有参与者时中断任务
+		 */
+		void remove(Participant<T> participant) {
+			participants.remove(participant);
+			if (participants.isEmpty() && !finished) {
+				finished = true;
+				detach();
+				operation.abandon();
+			}
+		}
+
+		private void detach() {
+			if (flights.get(key) == this) {
+				flights.remove(key);
+			}
+		}
+
+		@Override
+		public void onSuccess(T result) {
+			finished = true;
+			detach();
+			final ArrayList<Participant<T>> snapshot = new ArrayList<Participant<T>>(participants);
+			participants.clear();
+			for (int i = 0; i < snapshot.size(); i++) {
+				snapshot.get(i).deliverSuccess(result);
+			}
+		}
+
+		@Override
+		public void onFailure(Throwable error) {
+			finished = true;
+			detach();
+			final ArrayList<Participant<T>> snapshot = new ArrayList<Participant<T>>(participants);
+			participants.clear();
+			for (int i = 0; i < snapshot.size(); i++) {
+				snapshot.get(i).deliverFailure(error);
+			}
+		}
+	}
+
+	/**
+	 * 一个PullToRefreshView对共享任务的参与
+	 */
+	private static final class Participant<T> implements AsyncHandle {
+
+		private final Flight<T> flight;
+		private final AsyncOperation.Callback<T> callback;
+		private boolean finished = false;
+
+		Participant(Flight<T> flight, AsyncOperation.Callback<T> callback) {
+			this.flight = flight;
+			this.callback = callback;
+		}
+
+		void deliverSuccess(T result) {
+			if (!finished) {
+				finished = true;
+				callback.onSuccess(result);
+			}
+		}
+
+		void deliverFailure(Throwable error) {
+			if (!finished) {
+				finished = true;
+				callback.onFailure(error);
+			}
+		}
+
+		@Override
+		public void cancel() {
+			if (!finished) {
+				abandon();
+				callback.onFailure(new CancellationException());
+			}
+		}
+
+		@Override
+		public void abandon() {
+			if (!finished) {
+				finished = true;
+				flight.remove(this);
+			}
+		}
+
+		@Override
+		public boolean isFinished() {
+			return finished;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package com.zs.pulltorefreshtest;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import android.content.res.Resources;
+
+/**
+ * 生成“更新于：xxx”文字，一天以内显示“刚刚”“5分钟前”等相对时间，超过一天显示日期。
+ * 结果按分钟缓存，刷新时间和已经过去的分钟数都没有变化时直接返回上次的String对象，
+ * 调用者可以用==判断是否需要setText()。SimpleDateFormat只创建一次，只能在主线程中使用
+ */
+final class RefreshTimeFormatter {
+
+	private static final String FORMAT = "MM-dd HH:mm";
+
+	private static final long MINUTE = 60 * 1000L;
+	private static final long HOUR = 60 * MINUTE;
+	private static final long DAY = 24 * HOUR;
+
+	private final Resources resources;
+	private SimpleDateFormat dateFormat;
+	private Date date;
+
+	/**缓存对应的刷新时间*/
+	private long cachedTime = Long.MIN_VALUE;
+	/**缓存对应的已经过去的分钟数*/
+	private long cachedMinutes = Long.MIN_VALUE;
+	private String cachedText;
+
+	RefreshTimeFormatter(Resources resources) {
+		this.resources = resources;
+	}
+
+	/**
+	 * @方法描述: 获取当前时间下的文字
+	 * @param time 刷新时间，小于等于0时表示没有刷新过
+	 * @return
+	 */
+	String format(long time) {
+		return format(time, System.currentTimeMillis());
+	}
+
+	/**
+	 * @方法描述: 获取指定时间下的文字，与上次的刷新时间和分钟数相同时返回缓存
+	 * @param time 刷新时间，小于等于0时表示没有刷新过
+	 * @param now 当前时间
+	 * @return
+	 */
+	String format(long time, long now) {
+		final long minutes = time > 0 ? Math.max(0, now - time) / MINUTE : 0;
+		if (time == cachedTime && minutes == cachedMinutes && null != cachedText) {
+			return cachedText;
+		}
+		cachedTime = time;
+		cachedMinutes = minutes;
+		cachedText = build(time, minutes);
+		return cachedText;
+	}
+
+	private String build(long time, long minutes) {
+		final String prefix = resources.getString(R.string.pull_to_refresh_last_time);
+		if (time <= 0) {
+			return prefix;
+		}
+		final long elapsed = minutes * MINUTE;
+		if (elapsed < MINUTE) {
+			return prefix + resources.getString(R.string.pull_to_refresh_just_now);
+		}
+		if (elapsed < HOUR) {
+			return prefix + resources.getString(R.string.pull_to_refresh_minutes_ago, (int) minutes);
+		}
+		if (elapsed < DAY) {
+			return prefix + resources.getString(R.string.pull_to_refresh_hours_ago, (int) (elapsed / HOUR));
+		}
+		if (null == dateFormat) {
+			dateFormat = new SimpleDateFormat(FORMAT, Locale.getDefault());
+			date = new Date();
+		}
+		date.setTime(time);
+		return prefix + dateFormat.format(date);
+	}
+}
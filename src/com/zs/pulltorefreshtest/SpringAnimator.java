@@ -0,0 +1,161 @@
+package com.zs.pulltorefreshtest;
+
+/**
+ * 弹簧动画，按阻尼谐振子的解析解根据每一帧的时间计算位置和速度，
+ * 不依赖固定时长，任意距离和初速度下的回弹都保持一致的手感。
+ * 只保存基本类型的状态，运行过程中不分配对象
+ */
+final class SpringAnimator {
+
+	/**默认刚度（单位质量），数值越大回弹越快*/
+	static final float DEFAULT_STIFFNESS = 300f;
+	/**默认阻尼比，1为临界阻尼，没有初速度时不会越过目标位置；朝向目标的初速度大于ω·|x0|时仍会越过一次*/
+	static final float DEFAULT_DAMPING_RATIO = 1f;
+
+	/**距离目标小于该值（px）且速度小于REST_VELOCITY时认为动画结束*/
+	private static final float REST_DISPLACEMENT = 0.5f;
+	/**单位px/s*/
+	private static final float REST_VELOCITY = 10f;
+	/**第一帧没有上一帧时间时使用的帧间隔，单位秒*/
+	private static final float FIRST_FRAME_INTERVAL = 0.016f;
+
+	private float stiffness = DEFAULT_STIFFNESS;
+	private float dampingRatio = DEFAULT_DAMPING_RATIO;
+
+	/**当前位置，单位px*/
+	private float position;
+	/**当前速度，单位px/s*/
+	private float velocity;
+	private float target;
+	private long lastFrameTimeNanos = -1;
+	private boolean running = false;
+
+	void setStiffness(float stiffness) {
+		if (stiffness <= 0) {
+			throw new IllegalArgumentException("stiffness must be positive");
+		}
+		this.stiffness = stiffness;
+	}
+
+	float getStiffness() {
+		return stiffness;
+	}
+
+	void setDampingRatio(float dampingRatio) {
+		if (dampingRatio <= 0) {
+			throw new IllegalArgumentException("damping ratio must be positive");
+		}
+		this.dampingRatio = dampingRatio;
+	}
+
+	float getDampingRatio() {
+		return dampingRatio;
+	}
+
+	/**
+	 * @方法描述: 从当前位置以指定初速度向目标位置运动
+	 * @param from 起始位置
+	 * @param to 目标位置
+	 * @param startVelocity 初速度，单位px/s
+	 */
+	void start(float from, float to, float startVelocity) {
+		this.position = from;
+		this.target = to;
+		this.velocity = startVelocity;
+		this.lastFrameTimeNanos = -1;
+		this.running = !isAtRest();
+		if (!running) {
+			position = target;
+			velocity = 0;
+		}
+	}
+
+	/**
+	 * @方法描述: 停止在当前位置
+	 */
+	void cancel() {
+		running = false;
+		velocity = 0;
+	}
+
+	boolean isRunning() {
+		return running;
+	}
+
+	int getCurrentPosition() {
+		return Math.round(position);
+	}
+
+	int getTargetPosition() {
+		return Math.round(target);
+	}
+
+	float getVelocity() {
+		return velocity;
+	}
+
+	/**
+	 * @方法描述: 计算到frameTimeNanos时的位置和速度
+	 * @param frameTimeNanos 帧时间（纳秒）
+	 * @return 动画是否仍在运行
+	 */
+	boolean step(long frameTimeNanos) {
+		if (!running) {
+			return false;
+		}
+		final float t;
+		if (lastFrameTimeNanos < 0) {
+			t = FIRST_FRAME_INTERVAL;
+		} else {
+			t = Math.max(0, frameTimeNanos - lastFrameTimeNanos) / 1000000000f;
+		}
+		lastFrameTimeNanos = frameTimeNanos;
+
+		final double omega = Math.sqrt(stiffness);
+		final double x0 = position - target;
+		final double v0 = velocity;
+		final double x;
+		final double v;
+		if (dampingRatio < 1) {
+			/*欠阻尼*/
+			final double omegaD = omega * Math.sqrt(1 - dampingRatio * dampingRatio);
+			final double decay = Math.exp(-dampingRatio * omega * t);
+			final double a = x0;
+			final double b = (v0 + dampingRatio * omega * x0) / omegaD;
+			final double cos = Math.cos(omegaD * t);
+			final double sin = Math.sin(omegaD * t);
+			x = decay * (a * cos + b * sin);
+			v = decay * ((b * omegaD - dampingRatio * omega * a) * cos - (a * omegaD + dampingRatio * omega * b) * sin);
+		} else if (dampingRatio == 1) {
+			/*临界阻尼*/
+			final double decay = Math.exp(-omega * t);
+			final double b = v0 + omega * x0;
+			x = (x0 + b * t) * decay;
+			v = (b - omega * (x0 + b * t)) * decay;
+		} else {
+			/*过阻尼*/
+			final double root = Math.sqrt(dampingRatio * dampingRatio - 1);
+			final double r1 = -omega * (dampingRatio - root);
+			final double r2 = -omega * (dampingRatio + root);
+			final double c2 = (v0 - r1 * x0) / (r2 - r1);
+			final double c1 = x0 - c2;
+			final double e1 = Math.exp(r1 * t);
+			final double e2 = Math.exp(r2 * t);
+			x = c1 * e1 + c2 * e2;
+			v = c1 * r1 * e1 + c2 * r2 * e2;
+		}
+		position = (float) (target + x);
+		velocity = (float) v;
+
+		if (isAtRest()) {
+			position = target;
+			velocity = 0;
+			running = false;
+		}
+		return running;
+	}
+
+	private boolean isAtRest() {
+		return Math.abs(position - target) < REST_DISPLACEMENT && Math.abs(velocity) < REST_VELOCITY;
+	}
+}